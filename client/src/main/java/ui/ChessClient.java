@@ -115,6 +115,10 @@ public class ChessClient implements DisplayHandler {
         if (params.length == 1 && userState == State.LOGGED_IN) {
             var gameData = server.createGame(authToken, params[0]);
             return String.format("Create %d", gameData.gameID());
+        } else if (params.length == 2 && userState == State.LOGGED_IN && (params[1].equalsIgnoreCase("WHITE") || params[1].equalsIgnoreCase("BLACK"))) {
+            var botColor = ChessGame.TeamColor.valueOf(params[1].toUpperCase());
+            var gameData = server.createGame(authToken, params[0], botColor);
+            return String.format("Create %d with the bot playing %s", gameData.gameID(), botColor);
         }
         return "Failure";
     }
@@ -323,7 +327,7 @@ public class ChessClient implements DisplayHandler {
     );
 
     static final List<Help> loggedInHelp = List.of(
-            new Help("create <NAME>", "a game"),
+            new Help("create <NAME> [WHITE|BLACK]", "a game, optionally with the bot playing a color"),
             new Help("list", "games"),
             new Help("join <ID> [WHITE|BLACK]", "a game"),
             new Help("observe <ID>", "a game"),
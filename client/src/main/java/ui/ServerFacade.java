@@ -1,9 +1,10 @@
 package ui;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessJson;
 import model.AuthData;
 import model.GameData;
+import server.CreateGameRequest;
 import server.JoinRequest;
 import util.ResponseException;
 
@@ -47,7 +48,11 @@ public class ServerFacade {
     }
 
     public GameData createGame(String authToken, String gameName) throws ResponseException {
-        var request = Map.of("gameName", gameName);
+        return createGame(authToken, gameName, null);
+    }
+
+    public GameData createGame(String authToken, String gameName, ChessGame.TeamColor botColor) throws ResponseException {
+        var request = new CreateGameRequest(gameName, botColor);
         return this.makeRequest("POST", "/game", request, authToken, GameData.class);
     }
 
@@ -87,7 +92,7 @@ public class ServerFacade {
 
             if (request != null) {
                 http.addRequestProperty("Accept", "application/json");
-                String reqData = new Gson().toJson(request);
+                String reqData = ChessJson.gson().toJson(request);
                 try (OutputStream reqBody = http.getOutputStream()) {
                     reqBody.write(reqData.getBytes());
                 }
@@ -98,7 +103,7 @@ public class ServerFacade {
                 InputStreamReader reader = new InputStreamReader(respBody);
                 if (http.getResponseCode() == 200) {
                     if (clazz != null) {
-                        var serializer = new Gson();
+                        var serializer = ChessJson.gson();
                         return serializer.fromJson(reader, clazz);
                     }
                     return null;
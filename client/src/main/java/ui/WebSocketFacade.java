@@ -1,6 +1,6 @@
 package ui;
 
-import com.google.gson.Gson;
+import chess.ChessJson;
 import webSocketMessages.serverMessages.ErrorMessage;
 import webSocketMessages.serverMessages.LoadMessage;
 import webSocketMessages.serverMessages.NotificationMessage;
@@ -32,10 +32,10 @@ public class WebSocketFacade extends Endpoint {
         this.session.addMessageHandler(new MessageHandler.Whole<String>() {
             @Override
             public void onMessage(String message) {
-                var gson = new Gson();
+                var gson = ChessJson.gson();
 
                 try {
-                    ServerMessage serverMessage = new Gson().fromJson(message, ServerMessage.class);
+                    ServerMessage serverMessage = gson.fromJson(message, ServerMessage.class);
                     switch (serverMessage.getServerMessageType()) {
                         case LOAD_GAME -> responseHandler.updateBoard(gson.fromJson(message, LoadMessage.class).game);
                         case NOTIFICATION ->
@@ -56,7 +56,7 @@ public class WebSocketFacade extends Endpoint {
     }
 
     public void sendCommand(GameCommand command) throws IOException {
-        this.session.getBasicRemote().sendText(new Gson().toJson(command));
+        this.session.getBasicRemote().sendText(ChessJson.gson().toJson(command));
     }
 }
 
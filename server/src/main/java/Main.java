@@ -1,8 +1,19 @@
+import chess.engine.OpeningBookBuilder;
+import dataAccess.MySqlDataAccess;
 import server.Server;
+import service.AdminService;
+
+import java.nio.file.Path;
 
 public class Main {
 
     public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--build-book")) {
+            var games = new AdminService(new MySqlDataAccess()).buildOpeningBook(Path.of(args[1]), OpeningBookBuilder.DEFAULT_PLIES);
+            System.out.printf("Wrote opening book %s from %d games\n", args[1], games);
+            return;
+        }
+
         System.out.println("♕ 240 Chess Server");
         var port = new Server().run(8080);
         System.out.printf("Running server on port %d\n", port);
@@ -1,5 +1,6 @@
 package dataAccess;
 
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
 import model.UserData;
@@ -76,6 +77,16 @@ public interface DataAccess {
      */
     void updateGame(GameData game) throws DataAccessException;
 
+    /**
+     * Record a move made in an existing game. This is cheaper than {@link #updateGame}, which
+     * rewrites the whole game, and is all that a move needs unless it also changed the players.
+     *
+     * @param game after the move, including any change to its state.
+     * @param move that was made.
+     * @throws DataAccessException for database or sql query violations.
+     */
+    void writeMove(GameData game, ChessMove move) throws DataAccessException;
+
     /**
      * Read a previously persisted Game.
      *
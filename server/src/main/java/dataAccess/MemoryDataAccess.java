@@ -1,6 +1,7 @@
 package dataAccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
 import model.UserData;
@@ -69,6 +70,10 @@ public class MemoryDataAccess implements DataAccess {
         games.put(game.gameID(), game);
     }
 
+    public void writeMove(GameData game, ChessMove move) {
+        games.put(game.gameID(), game);
+    }
+
     public GameData readGame(int gameID) {
         return games.get(gameID);
     }
@@ -1,6 +1,10 @@
 package dataAccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import model.*;
 
 import java.sql.*;
@@ -9,7 +13,16 @@ import java.util.*;
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 import static java.sql.Types.NULL;
 
+/**
+ * Persists to MySQL. A move is appended to the `game_move` log rather than rewriting its game.
+ * The `game` row holds a snapshot of the game as of `snapshotPly`, which is rewritten every
+ * {@link #SNAPSHOT_INTERVAL} plies, when the game ends, or when the game is updated. The snapshot
+ * keeps the positions repetitions are counted from, so a read decodes it without replaying the
+ * game's history and then replays at most that many logged moves.
+ */
 public class MySqlDataAccess implements DataAccess {
+    public static final int SNAPSHOT_INTERVAL = 20;
+
     public MySqlDataAccess() throws DataAccessException {
         configureDatabase();
     }
@@ -17,6 +30,7 @@ public class MySqlDataAccess implements DataAccess {
     public void clear() throws DataAccessException {
         executeCommand("DELETE FROM `authentication`");
         executeCommand("DELETE FROM `user`");
+        executeCommand("DELETE FROM `game_move`");
         executeCommand("DELETE FROM `game`");
     }
 
@@ -84,7 +98,7 @@ public class MySqlDataAccess implements DataAccess {
                 gameName,
                 null,
                 null,
-                game.toString(),
+                GameCodec.encode(game),
                 state.toString());
         if (id != 0) {
             return new GameData(id, null, null, gameName, game, state);
@@ -94,40 +108,72 @@ public class MySqlDataAccess implements DataAccess {
     }
 
     public void updateGame(GameData gameData) throws DataAccessException {
-        executeUpdate("UPDATE `game` set gameName=?, whitePlayerName=?, blackPlayerName=?, game=?, state=? WHERE gameID=?",
+        executeUpdate("UPDATE `game` set gameName=?, whitePlayerName=?, blackPlayerName=?, game=?, snapshotPly=?, state=? WHERE gameID=?",
                 gameData.gameName(),
                 gameData.whiteUsername(),
                 gameData.blackUsername(),
-                gameData.game().toString(),
+                GameCodec.encode(gameData.game()),
+                gameData.game().getBoard().getHistory().size(),
                 gameData.state().toString(),
                 gameData.gameID());
     }
 
+    public void writeMove(GameData gameData, ChessMove move) throws DataAccessException {
+        var ply = gameData.game().getBoard().getHistory().size();
+        executeUpdate("INSERT INTO `game_move` (gameID, ply, move) VALUES (?, ?, ?)", gameData.gameID(), ply, PackedMove.encode(move));
+        if (ply % SNAPSHOT_INTERVAL == 0 || gameData.isGameOver()) {
+            updateGame(gameData);
+        }
+    }
+
     public GameData readGame(int gameID) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
+            GameData gameData = null;
             try (var preparedStatement = conn.prepareStatement("SELECT gameID, gameName, whitePlayerName, blackPlayerName, game, state FROM `game` WHERE gameID=?")) {
                 preparedStatement.setInt(1, gameID);
                 try (var rs = preparedStatement.executeQuery()) {
                     if (rs.next()) {
-                        return readGameData(rs);
+                        gameData = readGameData(rs);
+                    }
+                }
+            }
+            if (gameData != null) {
+                var tail = "SELECT gameID, ply, move FROM `game_move` WHERE gameID=? AND ply>? ORDER BY ply";
+                try (var preparedStatement = conn.prepareStatement(tail)) {
+                    preparedStatement.setInt(1, gameID);
+                    preparedStatement.setInt(2, gameData.game().getBoard().getHistory().size());
+                    try (var rs = preparedStatement.executeQuery()) {
+                        while (rs.next()) {
+                            replayMove(gameData, rs);
+                        }
                     }
                 }
             }
+            return gameData;
         } catch (SQLException e) {
             throw new DataAccessException(String.format("Unable to read data: %s", e.getMessage()));
         }
-
-        return null;
     }
 
     public Collection<GameData> listGames() throws DataAccessException {
-        var result = new ArrayList<GameData>();
+        var result = new LinkedHashMap<Integer, GameData>();
         try (var conn = DatabaseManager.getConnection()) {
             try (var preparedStatement = conn.prepareStatement("SELECT gameID, gameName, whitePlayerName, blackPlayerName, game, state FROM `game`")) {
                 try (var rs = preparedStatement.executeQuery()) {
                     while (rs.next()) {
                         var gameData = readGameData(rs);
-                        result.add(gameData);
+                        result.put(gameData.gameID(), gameData);
+                    }
+                }
+            }
+            var tails = "SELECT m.gameID, m.ply, m.move FROM `game_move` m JOIN `game` g ON g.gameID = m.gameID WHERE m.ply > g.snapshotPly ORDER BY m.gameID, m.ply";
+            try (var preparedStatement = conn.prepareStatement(tails)) {
+                try (var rs = preparedStatement.executeQuery()) {
+                    while (rs.next()) {
+                        var gameData = result.get(rs.getInt("gameID"));
+                        if (gameData != null) {
+                            replayMove(gameData, rs);
+                        }
                     }
                 }
             }
@@ -135,16 +181,36 @@ public class MySqlDataAccess implements DataAccess {
             throw new DataAccessException(String.format("Unable to read data: %s", e.getMessage()));
         }
 
-        return result;
+        return result.values();
+    }
+
+    /**
+     * Makes a logged move on the game read from its snapshot. Moves the snapshot already holds are skipped.
+     */
+    private void replayMove(GameData gameData, ResultSet rs) throws SQLException, DataAccessException {
+        var game = gameData.game();
+        var ply = rs.getInt("ply");
+        var made = game.getBoard().getHistory().size();
+        if (ply <= made) {
+            return;
+        }
+        if (ply != made + 1) {
+            throw new DataAccessException(String.format("Game %d is missing move %d", gameData.gameID(), made + 1));
+        }
+        try {
+            game.makeMove(PackedMove.toChessMove(rs.getInt("move") & PackedMove.MOVE_MASK));
+        } catch (InvalidMoveException e) {
+            throw new DataAccessException(String.format("Game %d has an invalid move %d: %s", gameData.gameID(), ply, e.getMessage()));
+        }
     }
 
     private GameData readGameData(ResultSet rs) throws SQLException {
-        var gs = rs.getString("game");
+        var gs = rs.getBytes("game");
         var gameID = rs.getInt("gameID");
         var gameName = rs.getString("gameName");
         var whitePlayerName = rs.getString("whitePlayerName");
         var blackPlayerName = rs.getString("blackPlayerName");
-        var game = ChessGame.create(gs);
+        var game = GameCodec.decode(gs);
         var state = GameData.State.valueOf(rs.getString("state"));
 
         return new GameData(gameID, whitePlayerName, blackPlayerName, gameName, game, state);
@@ -164,12 +230,22 @@ public class MySqlDataAccess implements DataAccess {
               `gameName` varchar(45) DEFAULT NULL,
               `whitePlayerName` varchar(100) DEFAULT NULL,
               `blackPlayerName` varchar(100) DEFAULT NULL,
-              `game` longtext NOT NULL,
+              `game` longblob NOT NULL,
+              `snapshotPly` int NOT NULL DEFAULT 0,
               `state` varchar(45) DEFAULT NULL,
               PRIMARY KEY (`gameID`)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
             """,
             """
+            CREATE TABLE IF NOT EXISTS game_move (
+              `gameID` int NOT NULL,
+              `ply` int NOT NULL,
+              `move` smallint NOT NULL,
+              `created` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+              PRIMARY KEY (`gameID`, `ply`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+            """,
+            """
             CREATE TABLE IF NOT EXISTS user (
               `username` varchar(256) NOT NULL,
               `password` varchar(4096) NOT NULL,
@@ -189,12 +265,60 @@ public class MySqlDataAccess implements DataAccess {
                         preparedStatement.executeUpdate();
                     }
                 }
+                migrateGameColumn(conn);
+                migrateSnapshotPly(conn);
             }
         } catch (SQLException e) {
             throw new DataAccessException(String.format("Unable to configure database: %s", e.getMessage()));
         }
     }
 
+    /**
+     * Games were once stored as JSON in a longtext column. Changes the column to hold the binary
+     * form and rewrites every JSON game in it. Rows missed by an interrupted migration are still
+     * read, since the codec reads JSON too.
+     */
+    private void migrateGameColumn(Connection conn) throws SQLException {
+        var columnType = "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='game' AND COLUMN_NAME='game'";
+        try (var preparedStatement = conn.prepareStatement(columnType); var rs = preparedStatement.executeQuery()) {
+            if (!rs.next() || rs.getString(1).equalsIgnoreCase("longblob")) {
+                return;
+            }
+        }
+        try (var preparedStatement = conn.prepareStatement("ALTER TABLE `game` MODIFY `game` longblob NOT NULL")) {
+            preparedStatement.executeUpdate();
+        }
+
+        try (var select = conn.prepareStatement("SELECT gameID, game FROM `game`");
+             var update = conn.prepareStatement("UPDATE `game` set game=? WHERE gameID=?");
+             var rs = select.executeQuery()) {
+            while (rs.next()) {
+                var data = rs.getBytes("game");
+                if (!GameCodec.isEncoded(data)) {
+                    update.setBytes(1, GameCodec.encode(GameCodec.decode(data)));
+                    update.setInt(2, rs.getInt("gameID"));
+                    update.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the snapshotPly column to a game table created before the move log. Its games have no
+     * logged moves, so any value no later than their history is correct.
+     */
+    private void migrateSnapshotPly(Connection conn) throws SQLException {
+        var column = "SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='game' AND COLUMN_NAME='snapshotPly'";
+        try (var preparedStatement = conn.prepareStatement(column); var rs = preparedStatement.executeQuery()) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (var preparedStatement = conn.prepareStatement("ALTER TABLE `game` ADD `snapshotPly` int NOT NULL DEFAULT 0 AFTER `game`")) {
+            preparedStatement.executeUpdate();
+        }
+    }
+
     private void executeCommand(String statement) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
             try (var preparedStatement = conn.prepareStatement(statement)) {
@@ -212,6 +336,7 @@ public class MySqlDataAccess implements DataAccess {
                     var param = params[i];
                     if (param instanceof String p) preparedStatement.setString(i + 1, p);
                     else if (param instanceof Integer p) preparedStatement.setInt(i + 1, p);
+                    else if (param instanceof byte[] p) preparedStatement.setBytes(i + 1, p);
                     else if (param == null) preparedStatement.setNull(i + 1, NULL);
                 }
                 preparedStatement.executeUpdate();
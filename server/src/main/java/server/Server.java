@@ -1,5 +1,11 @@
 package server;
 
+import chess.ChessJson;
+import chess.Fen;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.SearchLimits;
+import chess.engine.Tablebases;
 import com.google.gson.Gson;
 import dataAccess.MySqlDataAccess;
 import model.*;
@@ -7,6 +13,8 @@ import service.*;
 import spark.*;
 import util.CodedException;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.logging.Logger;
@@ -18,7 +26,10 @@ public class Server {
     GameService gameService;
     AdminService adminService;
     AuthService authService;
+    BotService botService;
+    AnalysisService analysisService;
     WebSocketHandler webSocketHandler;
+    Engine engine;
 
     public static final Logger log = Logger.getLogger("chess");
 
@@ -39,6 +50,8 @@ public class Server {
             Spark.get("/game", this::listGames);
             Spark.post("/game", this::createGame);
             Spark.put("/game", this::joinGame);
+            Spark.get("/game/:gameID/position", this::gamePosition);
+            Spark.post("/analysis", this::analyze);
             Spark.afterAfter(this::log);
 
 
@@ -61,6 +74,9 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        if (engine != null) {
+            engine.close();
+        }
     }
 
     private void loadServices() throws Exception {
@@ -70,7 +86,49 @@ public class Server {
         gameService = new GameService(dataAccess);
         adminService = new AdminService(dataAccess);
         authService = new AuthService(dataAccess);
-        webSocketHandler = new WebSocketHandler(dataAccess);
+        var processors = Runtime.getRuntime().availableProcessors();
+        var tablebases = loadTablebases();
+        engine = new Engine(Math.max(1, processors / 2), processors - 1, 64, tablebases);
+        var book = loadOpeningBook();
+        botService = new BotService(engine, new SearchLimits(12, 1000, 2), book);
+        analysisService = new AnalysisService(dataAccess, engine, 2, 16 * 1024 * 1024, book);
+        webSocketHandler = new WebSocketHandler(dataAccess, botService, tablebases);
+    }
+
+    /**
+     * Opens the opening book named by the chess.book system property, defaulting to
+     * opening.book in the working directory.
+     *
+     * @return the book, or null if there is none.
+     */
+    private static OpeningBook loadOpeningBook() {
+        var path = Paths.get(System.getProperty("chess.book", "opening.book"));
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(path);
+        } catch (IOException ex) {
+            log.warning(String.format("Unable to open opening book %s: %s", path, ex.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Maps the endgame tables in the directory named by the chess.tablebases system property,
+     * defaulting to tablebases in the working directory.
+     *
+     * @return the tables, or null if there are none.
+     */
+    private static Tablebases loadTablebases() {
+        var path = Paths.get(System.getProperty("chess.tablebases", "tablebases"));
+        try {
+            var tablebases = Tablebases.open(path);
+            return tablebases.materials().isEmpty() ? null : tablebases;
+        } catch (IOException ex) {
+            log.warning(String.format("Unable to open tablebases %s: %s", path, ex.getMessage()));
+            return null;
+        }
     }
 
     private Object errorHandler(CodedException e, Request req, Response res) {
@@ -139,11 +197,12 @@ public class Server {
     /**
      * Endpoint for [POST] / game
      * Authorization header required.
+     * <pre>{ "gameName":"", "botColor":"WHITE/BLACK/empty" }</pre>
      */
     public Object createGame(Request req, Response ignoreRes) throws CodedException {
         throwIfUnauthorized(req);
-        var gameData = getBody(req, GameData.class);
-        gameData = gameService.createGame(gameData.gameName());
+        var createReq = getBody(req, CreateGameRequest.class);
+        var gameData = gameService.createGame(createReq.gameName(), createReq.botColor());
         return send("gameID", gameData.gameID());
     }
 
@@ -159,8 +218,42 @@ public class Server {
         return send();
     }
 
+    /**
+     * Endpoint for [GET] /game/:gameID/position?ply=10
+     * Authorization header required. Without a ply the current position is returned.
+     */
+    public Object gamePosition(Request req, Response ignoreRes) throws CodedException {
+        throwIfUnauthorized(req);
+        var gameID = parseInt(req.params(":gameID"), "gameID");
+        var ply = req.queryParams("ply") == null ? null : parseInt(req.queryParams("ply"), "ply");
+        var game = gameService.position(gameID, ply);
+        var lastMove = game.getBoard().getLastMove();
+        return send("gameID", gameID, "ply", game.getBoard().getHistory().size(), "fen", Fen.format(game),
+                "lastMove", lastMove == null ? null : lastMove.notation());
+    }
+
+    /**
+     * Endpoint for [POST] /analysis
+     * Authorization header required.
+     * <pre>{ "fen":"", "gameID": 1234, "ply": 10, "depth": 10 }</pre>
+     */
+    public Object analyze(Request req, Response ignoreRes) throws CodedException {
+        throwIfUnauthorized(req);
+        var analysisReq = getBody(req, AnalysisRequest.class);
+        var analysis = analysisService.analyze(analysisReq);
+        return ChessJson.gson().toJson(analysis);
+    }
+
+    private static int parseInt(String value, String name) throws CodedException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new CodedException(400, String.format("%s must be a number", name));
+        }
+    }
+
     private <T> T getBody(Request request, Class<T> clazz) throws CodedException {
-        var body = new Gson().fromJson(request.body(), clazz);
+        var body = ChessJson.gson().fromJson(request.body(), clazz);
         if (body == null) {
             throw new CodedException(400, "Missing body");
         }
@@ -172,7 +265,7 @@ public class Server {
         for (var i = 0; i + 1 < props.length; i = i + 2) {
             map.put(props[i], props[i + 1]);
         }
-        return new Gson().toJson(map);
+        return ChessJson.gson().toJson(map);
     }
 
     private AuthData throwIfUnauthorized(Request req) throws CodedException {
@@ -1,11 +1,12 @@
 package server;
 
 import chess.*;
-import com.google.gson.Gson;
+import chess.engine.Tablebases;
 import dataAccess.*;
 import model.*;
 import org.eclipse.jetty.websocket.api.*;
 import org.eclipse.jetty.websocket.api.annotations.*;
+import service.BotService;
 import util.StringUtil;
 import webSocketMessages.serverMessages.*;
 import webSocketMessages.userCommands.*;
@@ -14,13 +15,17 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 
-import static chess.ChessGame.TeamColor.BLACK;
 import static chess.ChessGame.TeamColor.WHITE;
 
 @WebSocket
 public class WebSocketHandler {
 
     private final DataAccess dataAccess;
+    private final BotService botService;
+    private final Tablebases tablebases;
+
+    // Moves in a game are read, made and written under its lock, so a player's move and the bot's cannot interleave.
+    private final Object[] gameLocks = new Object[64];
 
     public static class Connection {
         public UserData user;
@@ -104,8 +109,13 @@ public class WebSocketHandler {
 
     private final ConnectionManager connections = new ConnectionManager();
 
-    public WebSocketHandler(DataAccess dataAccess) {
+    public WebSocketHandler(DataAccess dataAccess, BotService botService, Tablebases tablebases) {
         this.dataAccess = dataAccess;
+        this.botService = botService;
+        this.tablebases = tablebases;
+        for (var i = 0; i < gameLocks.length; i++) {
+            gameLocks[i] = new Object();
+        }
     }
 
     @OnWebSocketConnect
@@ -150,6 +160,7 @@ public class WebSocketHandler {
 
                 var notificationMsg = (new NotificationMessage(String.format("%s joined %s as %s", connection.user.username(), gameData.gameName(), command.playerColor))).toString();
                 connections.broadcast(gameData.gameID(), connection.user.username(), notificationMsg);
+                requestBotMove(gameData);
             } else {
                 connection.sendError("player has not joined game");
             }
@@ -173,28 +184,31 @@ public class WebSocketHandler {
     }
 
     private void move(Connection connection, MoveCommand command) throws Exception {
-        var gameData = dataAccess.readGame(command.gameID);
-        if (gameData != null) {
-            if (!gameData.isGameOver()) {
-                if (isTurn(gameData, command.move, connection.user.username())) {
-                    gameData.game().makeMove(command.move);
-                    var notificationMsg = (new NotificationMessage(String.format("%s moved %s", connection.user.username(), command.move))).toString();
-                    connections.broadcast(gameData.gameID(), connection.user.username(), notificationMsg);
-
-                    gameData = handleGameStateChange(gameData);
-                    dataAccess.updateGame(gameData);
-                    connection.game = gameData;
-
-                    var loadMsg = (new LoadMessage(gameData)).toString();
-                    connections.broadcast(gameData.gameID(), "", loadMsg);
+        synchronized (gameLock(command.gameID)) {
+            var gameData = dataAccess.readGame(command.gameID);
+            if (gameData != null) {
+                if (!gameData.isGameOver()) {
+                    if (isTurn(gameData, command.move, connection.user.username())) {
+                        var outcome = gameData.game().play(command.move);
+                        var notificationMsg = (new NotificationMessage(String.format("%s moved %s", connection.user.username(), command.move))).toString();
+                        connections.broadcast(gameData.gameID(), connection.user.username(), notificationMsg);
+
+                        gameData = handleGameStateChange(gameData, outcome);
+                        dataAccess.writeMove(gameData, outcome.move());
+                        connection.game = gameData;
+
+                        var loadMsg = (new LoadMessage(gameData)).toString();
+                        connections.broadcast(gameData.gameID(), "", loadMsg);
+                        requestBotMove(gameData);
+                    } else {
+                        connection.sendError("invalid move: " + command.move);
+                    }
                 } else {
-                    connection.sendError("invalid move: " + command.move);
+                    connection.sendError("game is over: " + gameData.state());
                 }
             } else {
-                connection.sendError("game is over: " + gameData.state());
+                connection.sendError("unknown game");
             }
-        } else {
-            connection.sendError("unknown game");
         }
     }
 
@@ -252,33 +266,104 @@ public class WebSocketHandler {
         return null;
     }
 
-    private GameData handleGameStateChange(GameData gameData) throws Exception {
+    /**
+     * If the bot is to move, starts it thinking. The move is played when the search
+     * completes, provided the game has not changed in the meantime.
+     */
+    private void requestBotMove(GameData gameData) {
+        if (botService == null || !botService.isBotTurn(gameData)) {
+            return;
+        }
+        var positionKey = gameData.game().positionKey();
+        botService.chooseMove(gameData.game()).thenAccept(move -> {
+            try {
+                if (move != null) {
+                    playBotMove(gameData.gameID(), positionKey, move);
+                }
+            } catch (Exception e) {
+                Server.log.warning(String.format("bot move failed in game %d: %s", gameData.gameID(), e.getMessage()));
+            }
+        });
+    }
+
+    private void playBotMove(int gameID, long positionKey, ChessMove move) throws Exception {
+        synchronized (gameLock(gameID)) {
+            var gameData = dataAccess.readGame(gameID);
+            if (gameData == null || gameData.isGameOver() || gameData.game().positionKey() != positionKey) {
+                return;
+            }
+            var outcome = gameData.game().play(move);
+            var notificationMsg = (new NotificationMessage(String.format("%s moved %s", BotService.USERNAME, move))).toString();
+            connections.broadcast(gameID, "", notificationMsg);
+
+            gameData = handleGameStateChange(gameData, outcome);
+            dataAccess.writeMove(gameData, outcome.move());
+
+            var loadMsg = (new LoadMessage(gameData)).toString();
+            connections.broadcast(gameID, "", loadMsg);
+        }
+    }
+
+    private Object gameLock(int gameID) {
+        return gameLocks[Math.floorMod(gameID, gameLocks.length)];
+    }
+
+    private GameData handleGameStateChange(GameData gameData, MoveOutcome outcome) throws Exception {
         NotificationMessage notificationMsg = null;
-        var game = gameData.game();
-        if (game.isInStalemate(WHITE) || game.isInStalemate(BLACK)) {
-            gameData = gameData.setState(GameData.State.DRAW);
-            notificationMsg = new NotificationMessage("game is a draw");
-        } else if (game.isInCheckmate(WHITE)) {
-            gameData = gameData.setState(GameData.State.BLACK);
-            notificationMsg = new NotificationMessage(String.format("Black player, %s, wins!", gameData.blackUsername()));
-        } else if (game.isInCheckmate(BLACK)) {
-            gameData = gameData.setState(GameData.State.WHITE);
-            notificationMsg = new NotificationMessage(String.format("White player, %s, wins!", gameData.whiteUsername()));
-        } else if (game.isInCheck(WHITE)) {
-            notificationMsg = new NotificationMessage(String.format("White player, %s, is in check!", gameData.whiteUsername()));
-        } else if (game.isInCheck(BLACK)) {
-            notificationMsg = new NotificationMessage(String.format("Black player, %s, is in check!", gameData.blackUsername()));
+        var whiteMoved = outcome.mover() == WHITE;
+        switch (outcome.status()) {
+            case STALEMATE -> {
+                gameData = gameData.setState(GameData.State.DRAW);
+                notificationMsg = new NotificationMessage("game is a draw");
+            }
+            case INSUFFICIENT_MATERIAL -> {
+                gameData = gameData.setState(GameData.State.DRAW);
+                notificationMsg = new NotificationMessage("game is a draw: neither player can checkmate");
+            }
+            case REPETITION -> {
+                gameData = gameData.setState(GameData.State.DRAW);
+                notificationMsg = new NotificationMessage("game is a draw by threefold repetition");
+            }
+            case FIFTY_MOVES -> {
+                gameData = gameData.setState(GameData.State.DRAW);
+                notificationMsg = new NotificationMessage("game is a draw by the fifty-move rule");
+            }
+            case CHECKMATE -> {
+                gameData = gameData.setState(whiteMoved ? GameData.State.WHITE : GameData.State.BLACK);
+                notificationMsg = whiteMoved
+                        ? new NotificationMessage(String.format("White player, %s, wins!", gameData.whiteUsername()))
+                        : new NotificationMessage(String.format("Black player, %s, wins!", gameData.blackUsername()));
+            }
+            case CHECK -> notificationMsg = whiteMoved
+                    ? new NotificationMessage(String.format("Black player, %s, is in check!", gameData.blackUsername()))
+                    : new NotificationMessage(String.format("White player, %s, is in check!", gameData.whiteUsername()));
+            default -> {
+            }
         }
 
         if (notificationMsg != null) {
             connections.broadcast(gameData.gameID(), "", notificationMsg.toString());
         }
+
+        // A capture or promotion is the only way into a smaller ending, so probe the tables then.
+        if (tablebases != null && !outcome.isGameOver() && (outcome.isCapture() || outcome.isPromotion())) {
+            var game = gameData.game();
+            var tablebase = tablebases.score(game.getBoard(), game.getTeamTurn());
+            if (tablebase != null) {
+                var message = "endgame tables: the game is a draw with best play";
+                if (tablebase.outcome() != Tablebases.Outcome.DRAW) {
+                    var winner = tablebase.outcome() == Tablebases.Outcome.WIN ? outcome.mover().opponent() : outcome.mover();
+                    message = String.format("endgame tables: %s mates in %d", winner == WHITE ? "white" : "black", tablebase.movesToMate());
+                }
+                connections.broadcast(gameData.gameID(), "", new NotificationMessage(message).toString());
+            }
+        }
         return gameData;
     }
 
 
     private static <T> T readJson(String json, Class<T> clazz) throws IOException {
-        var gson = new Gson();
+        var gson = ChessJson.gson();
         var obj = gson.fromJson(json, clazz);
         if (obj == null) {
             throw new IOException("Invalid JSON");
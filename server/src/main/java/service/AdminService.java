@@ -1,10 +1,16 @@
 package service;
 
 
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.engine.OpeningBookBuilder;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import util.CodedException;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * Provides endpoints for administrating the application.
  */
@@ -28,4 +34,33 @@ public class AdminService {
             throw new CodedException(500, "Server error");
         }
     }
+
+    /**
+     * Writes an opening book built from the openings of every finished game.
+     *
+     * @param path  of the book file to write.
+     * @param plies of each game to include.
+     * @return the number of games used.
+     */
+    public int buildOpeningBook(Path path, int plies) throws CodedException {
+        try {
+            var builder = new OpeningBookBuilder(plies);
+            for (var gameData : dataAccess.listGames()) {
+                if (gameData.isGameOver() && gameData.game() != null) {
+                    var winner = switch (gameData.state()) {
+                        case WHITE -> ChessGame.TeamColor.WHITE;
+                        case BLACK -> ChessGame.TeamColor.BLACK;
+                        default -> null;
+                    };
+                    builder.addGame(gameData.game().getBoard().getHistory(), winner);
+                }
+            }
+            builder.write(path);
+            return builder.games();
+        } catch (DataAccessException | InvalidMoveException ex) {
+            throw new CodedException(500, "Server error");
+        } catch (IOException ex) {
+            throw new CodedException(500, "Unable to write opening book");
+        }
+    }
 }
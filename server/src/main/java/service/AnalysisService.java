@@ -0,0 +1,168 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import dataAccess.DataAccess;
+import dataAccess.DataAccessException;
+import model.AnalysisData;
+import server.AnalysisRequest;
+import util.BoundedCache;
+import util.CodedException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides endpoints for analyzing positions.
+ * <p>[POST] /analysis - Analyze a position
+ * <p>
+ * Positions in the opening book or the engine's endgame tables are answered without searching. Other
+ * results are cached by position key and depth, and requests for a position that is already
+ * being searched wait for that search instead of starting another.
+ */
+public class AnalysisService {
+    public static final int DEFAULT_DEPTH = 10;
+    public static final int MAX_DEPTH = 20;
+
+    private static final long TIME_LIMIT_MILLIS = 10_000;
+
+    private record Key(long positionKey, int depth) {
+    }
+
+    private final DataAccess dataAccess;
+    private final Engine engine;
+    private final int threads;
+    private final OpeningBook book;
+    private final BoundedCache<Key, AnalysisData> cache;
+    private final ConcurrentHashMap<Key, CompletableFuture<AnalysisData>> searches = new ConcurrentHashMap<>();
+
+    /**
+     * @param threads    the thread budget for each search
+     * @param cacheBytes the approximate memory the result cache may use
+     * @param book       the opening book, or null
+     */
+    public AnalysisService(DataAccess dataAccess, Engine engine, int threads, long cacheBytes, OpeningBook book) {
+        this.dataAccess = dataAccess;
+        this.engine = engine;
+        this.threads = threads;
+        this.book = book;
+        this.cache = new BoundedCache<>(cacheBytes, AnalysisService::approximateSize);
+    }
+
+    /**
+     * Finds the best move, score and principal variation for a position.
+     *
+     * @param request naming the position by FEN, or by game and ply.
+     * @return the analysis.
+     * @throws CodedException if the position cannot be found or the search fails.
+     */
+    public AnalysisData analyze(AnalysisRequest request) throws CodedException {
+        var depth = request.depth() == null ? DEFAULT_DEPTH : request.depth();
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new CodedException(400, String.format("depth must be between 1 and %d", MAX_DEPTH));
+        }
+        var game = position(request);
+        var key = new Key(game.positionKey(), depth);
+
+        var cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (book != null) {
+            for (var entry : book.moves(key.positionKey())) {
+                if (game.validMoves(entry.move().getStartPosition()).contains(entry.move())) {
+                    var bestMove = entry.move().notation();
+                    return new AnalysisData(Fen.format(game), 0, bestMove, 0, false, List.of(bestMove), 0, true, false);
+                }
+            }
+        }
+        if (engine.tablebases() != null) {
+            var answer = engine.tablebases().result(game.getBoard(), game.getTeamTurn(), depth);
+            if (answer != null) {
+                return toAnalysis(game, answer, true);
+            }
+        }
+
+        var search = new CompletableFuture<AnalysisData>();
+        var running = searches.putIfAbsent(key, search);
+        if (running == null) {
+            var limits = new SearchLimits(depth, TIME_LIMIT_MILLIS, threads);
+            engine.think(game, limits).whenComplete((result, ex) -> {
+                try {
+                    if (ex != null) {
+                        search.completeExceptionally(ex);
+                    } else {
+                        var analysis = toAnalysis(game, result, false);
+                        // A search cut short by the time limit would poison the cache for this depth.
+                        if (result.depth() >= depth || result.isMate() || result.move() == null) {
+                            cache.put(key, analysis);
+                        }
+                        search.complete(analysis);
+                    }
+                } catch (RuntimeException e) {
+                    search.completeExceptionally(e);
+                } finally {
+                    searches.remove(key, search);
+                }
+            });
+            running = search;
+        }
+
+        try {
+            return running.get(TIME_LIMIT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        } catch (Exception ex) {
+            throw new CodedException(500, "Analysis failed");
+        }
+    }
+
+    public long cacheHits() {
+        return cache.hits();
+    }
+
+    public long cacheMisses() {
+        return cache.misses();
+    }
+
+    private ChessGame position(AnalysisRequest request) throws CodedException {
+        if (request.fen() != null) {
+            try {
+                return Fen.parse(request.fen());
+            } catch (IllegalArgumentException ex) {
+                throw new CodedException(400, ex.getMessage());
+            }
+        }
+        if (request.gameID() == null) {
+            throw new CodedException(400, "fen or gameID required");
+        }
+
+        try {
+            var gameData = dataAccess.readGame(request.gameID());
+            if (gameData == null) {
+                throw new CodedException(400, "Unknown game");
+            }
+            var game = gameData.game();
+            return game.atPly(request.ply() == null ? game.snapshot().ply() : request.ply());
+        } catch (DataAccessException ex) {
+            throw new CodedException(500, "Server error");
+        } catch (IllegalArgumentException ex) {
+            throw new CodedException(400, ex.getMessage());
+        }
+    }
+
+    private static AnalysisData toAnalysis(ChessGame game, SearchResult result, boolean tablebase) {
+        var pv = result.pv().stream().map(ChessMove::notation).toList();
+        var bestMove = result.move() == null ? null : result.move().notation();
+        return new AnalysisData(Fen.format(game), result.depth(), bestMove, result.score(), result.isMate(), pv, result.nodes(), false, tablebase);
+    }
+
+    private static long approximateSize(AnalysisData analysis) {
+        return 256 + analysis.fen().length() * 2L + analysis.pv().size() * 56L;
+    }
+}
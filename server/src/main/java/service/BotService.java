@@ -0,0 +1,66 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.SearchLimits;
+import model.GameData;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Plays the bot's side of bot games. Searches run on the engine's own worker pool so
+ * that the bot never thinks on a Spark or WebSocket thread, and positions in the opening
+ * book are answered without searching.
+ */
+public class BotService {
+    /**
+     * The username that occupies a bot's seat in {@link GameData}. It cannot be registered.
+     */
+    public static final String USERNAME = "chessbot";
+
+    private final Engine engine;
+    private final SearchLimits limits;
+    private final OpeningBook book;
+
+    /**
+     * @param book the opening book to play from, or null to always search.
+     */
+    public BotService(Engine engine, SearchLimits limits, OpeningBook book) {
+        this.engine = engine;
+        this.limits = limits;
+        this.book = book;
+    }
+
+    public static boolean isBot(String username) {
+        return USERNAME.equals(username);
+    }
+
+    /**
+     * @return true if the game is in progress and the bot holds the seat of the team to move.
+     */
+    public boolean isBotTurn(GameData gameData) {
+        if (gameData.isGameOver() || gameData.game() == null) {
+            return false;
+        }
+        var turn = gameData.game().getTeamTurn();
+        return isBot(turn == ChessGame.TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername());
+    }
+
+    /**
+     * Chooses the bot's move in the background.
+     *
+     * @return a future that completes with the move, or with null if there is no legal move.
+     */
+    public CompletableFuture<ChessMove> chooseMove(ChessGame game) {
+        if (book != null) {
+            var move = book.pick(game, ThreadLocalRandom.current());
+            if (move != null) {
+                return CompletableFuture.completedFuture(move);
+            }
+        }
+        return engine.think(game, limits).thenApply(result -> result.move());
+    }
+}
@@ -1,9 +1,11 @@
 package service;
 
 import chess.ChessGame;
+import chess.GameCheckpoints;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import model.GameData;
+import util.BoundedCache;
 import util.CodedException;
 
 import java.util.Collection;
@@ -13,10 +15,13 @@ import java.util.Collection;
  * <p>[GET] /game - Lists games
  * <p>[POST] / game - Create game
  * <p>[PUT] / - Join game
+ * <p>[GET] /game/:gameID/position - Position after a number of moves
  */
 public class GameService {
+    public static final long CHECKPOINT_CACHE_BYTES = 4 * 1024 * 1024;
 
     private final DataAccess dataAccess;
+    private final BoundedCache<Integer, GameCheckpoints> checkpoints = new BoundedCache<>(CHECKPOINT_CACHE_BYTES, GameService::approximateSize);
 
     public GameService(DataAccess dataAccess) {
         this.dataAccess = dataAccess;
@@ -42,8 +47,24 @@ public class GameService {
      * @return the newly created game.
      */
     public GameData createGame(String gameName) throws CodedException {
+        return createGame(gameName, null);
+    }
+
+    /**
+     * Creates a new game with the bot seated as one of the players.
+     *
+     * @param gameName to create
+     * @param botColor the seat the bot takes. If null then both seats are open.
+     * @return the newly created game.
+     */
+    public GameData createGame(String gameName, ChessGame.TeamColor botColor) throws CodedException {
         try {
-            return dataAccess.newGame(gameName);
+            var gameData = dataAccess.newGame(gameName);
+            if (botColor != null) {
+                gameData = botColor == ChessGame.TeamColor.WHITE ? gameData.setWhite(BotService.USERNAME) : gameData.setBlack(BotService.USERNAME);
+                dataAccess.updateGame(gameData);
+            }
+            return gameData;
         } catch (DataAccessException ex) {
             throw new CodedException(500, "Server error");
         }
@@ -89,4 +110,37 @@ public class GameService {
         }
     }
 
+    /**
+     * Gets the position after a number of moves of a game. The checkpoints of recently viewed
+     * games are cached, so stepping through a game replays only a few moves for each position.
+     *
+     * @param ply the number of moves, or null for the current position.
+     * @return a new game in that position.
+     */
+    public ChessGame position(int gameID, Integer ply) throws CodedException {
+        try {
+            var gameData = dataAccess.readGame(gameID);
+            if (gameData == null) {
+                throw new CodedException(400, "Unknown game");
+            }
+            var game = gameData.game();
+            var version = game.snapshot();
+            var target = ply == null ? version.ply() : ply;
+            if (target >= 0 && target < version.ply()) {
+                var cached = checkpoints.get(gameID);
+                var current = cached == null ? GameCheckpoints.of(version, GameCheckpoints.DEFAULT_INTERVAL) : cached.extend(version);
+                checkpoints.put(gameID, current);
+                game.setCheckpoints(current);
+            }
+            return game.atPly(target);
+        } catch (DataAccessException ex) {
+            throw new CodedException(500, "Server error");
+        } catch (IllegalArgumentException ex) {
+            throw new CodedException(400, ex.getMessage());
+        }
+    }
+
+    private static long approximateSize(GameCheckpoints checkpoints) {
+        return 128 + checkpoints.ply() * 8L + checkpoints.size() * 224L;
+    }
 }
@@ -1,6 +1,6 @@
 package service;
 
-import com.google.gson.Gson;
+import chess.ChessJson;
 import spark.Request;
 import util.CodedException;
 
@@ -9,7 +9,7 @@ import java.util.Map;
 
 public class Service {
     <T> T getBody(Request request, Class<T> clazz) throws CodedException {
-        var body = new Gson().fromJson(request.body(), clazz);
+        var body = ChessJson.gson().fromJson(request.body(), clazz);
         if (body == null) {
             throw new CodedException(400, "Missing body");
         }
@@ -21,7 +21,7 @@ public class Service {
         for (var i = 0; i + 1 < props.length; i = i + 2) {
             map.put(props[i], props[i + 1]);
         }
-        return new Gson().toJson(map);
+        return ChessJson.gson().toJson(map);
     }
 
 }
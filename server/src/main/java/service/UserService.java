@@ -31,6 +31,7 @@ public class UserService {
     public AuthData registerUser(UserData user) throws CodedException {
         if (StringUtils.isEmpty(user.username())) throw new CodedException(400, "missing username");
         if (StringUtils.isEmpty(user.password())) throw new CodedException(400, "missing password");
+        if (BotService.isBot(user.username())) throw new CodedException(403, "Unable to register user");
 
         try {
             var hashedPassword = encoder.encode(user.password());
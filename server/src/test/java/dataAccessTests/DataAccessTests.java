@@ -1,5 +1,6 @@
 package dataAccessTests;
 
+import chess.ChessMove;
 import dataAccess.DataAccess;
 import dataAccess.MemoryDataAccess;
 import dataAccess.MySqlDataAccess;
@@ -71,4 +72,24 @@ public class DataAccessTests {
         var returnedGames = db.listGames();
         Assertions.assertIterableEquals(games, returnedGames);
     }
+
+
+    @ParameterizedTest
+    @ValueSource(classes = {MySqlDataAccess.class, MemoryDataAccess.class})
+    public void writeMoves(Class<? extends DataAccess> dbClass) throws Exception {
+        DataAccess db = startDB(dbClass);
+
+        var gameData = db.newGame("shuffle");
+        var knights = new String[]{"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (var ply = 0; ply < MySqlDataAccess.SNAPSHOT_INTERVAL + 5; ply++) {
+            var move = new ChessMove(knights[ply % knights.length]);
+            gameData.game().makeMove(move);
+            db.writeMove(gameData, move);
+        }
+
+        var retrievedGame = db.readGame(gameData.gameID());
+        Assertions.assertEquals(gameData, retrievedGame);
+        Assertions.assertEquals(gameData.game().getBoard().getHistory(), retrievedGame.game().getBoard().getHistory());
+        Assertions.assertIterableEquals(List.of(gameData), db.listGames());
+    }
 }
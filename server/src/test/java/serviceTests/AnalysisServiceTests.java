@@ -0,0 +1,89 @@
+package serviceTests;
+
+import chess.ChessMove;
+import chess.Fen;
+import chess.engine.Engine;
+import dataAccess.MemoryDataAccess;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.AnalysisRequest;
+import service.AnalysisService;
+import util.CodedException;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+public class AnalysisServiceTests {
+    private static final String MATE_IN_ONE = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+
+    private Engine engine;
+    private MemoryDataAccess dataAccess;
+    private AnalysisService service;
+
+    @BeforeEach
+    public void setup() {
+        engine = new Engine(2, 1, 4);
+        dataAccess = new MemoryDataAccess();
+        service = new AnalysisService(dataAccess, engine, 1, 1024 * 1024, null);
+    }
+
+    @AfterEach
+    public void teardown() {
+        engine.close();
+    }
+
+    @Test
+    public void analyzeFen() throws Exception {
+        var analysis = service.analyze(new AnalysisRequest(MATE_IN_ONE, null, null, 4));
+
+        Assertions.assertEquals("a1a8", analysis.bestMove());
+        Assertions.assertTrue(analysis.mate());
+        Assertions.assertEquals("a1a8", analysis.pv().get(0));
+    }
+
+    @Test
+    public void repeatedRequestIsCached() throws Exception {
+        var first = service.analyze(new AnalysisRequest(MATE_IN_ONE, null, null, 4));
+        var second = service.analyze(new AnalysisRequest(MATE_IN_ONE, null, null, 4));
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, service.cacheHits());
+    }
+
+    @Test
+    public void concurrentRequestsShareOneSearch() throws Exception {
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<Object> request = () -> service.analyze(new AnalysisRequest(Fen.START, null, null, 6));
+            var results = executor.invokeAll(List.of(request, request, request, request));
+            var first = results.get(0).get();
+            for (var result : results) {
+                Assertions.assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void analyzeGamePly() throws Exception {
+        var gameData = dataAccess.newGame("analysis");
+        gameData.game().makeMove(new ChessMove("e2e4"));
+        gameData.game().makeMove(new ChessMove("e7e5"));
+        dataAccess.updateGame(gameData);
+
+        var analysis = service.analyze(new AnalysisRequest(null, gameData.gameID(), 1, 2));
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", analysis.fen());
+    }
+
+    @Test
+    public void badRequests() {
+        Assertions.assertThrows(CodedException.class, () -> service.analyze(new AnalysisRequest("not a fen", null, null, 4)));
+        Assertions.assertThrows(CodedException.class, () -> service.analyze(new AnalysisRequest(null, 99, null, 4)));
+        Assertions.assertThrows(CodedException.class, () -> service.analyze(new AnalysisRequest(MATE_IN_ONE, null, null, 99)));
+        Assertions.assertThrows(CodedException.class, () -> service.analyze(new AnalysisRequest(null, null, null, null)));
+    }
+}
@@ -0,0 +1,53 @@
+package serviceTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import dataAccess.MemoryDataAccess;
+import model.UserData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import service.BotService;
+import service.GameService;
+import service.UserService;
+import util.CodedException;
+
+public class GameServiceTests {
+
+    @Test
+    public void createBotGame() throws Exception {
+        var service = new GameService(new MemoryDataAccess());
+        var gameData = service.createGame("bot game", ChessGame.TeamColor.BLACK);
+
+        Assertions.assertEquals(BotService.USERNAME, gameData.blackUsername());
+        Assertions.assertNull(gameData.whiteUsername());
+        Assertions.assertDoesNotThrow(() -> service.joinGame("juan", ChessGame.TeamColor.WHITE, gameData.gameID()));
+        Assertions.assertThrows(CodedException.class, () -> service.joinGame("juan", ChessGame.TeamColor.BLACK, gameData.gameID()));
+    }
+
+    @Test
+    public void positionAtPly() throws Exception {
+        var dataAccess = new MemoryDataAccess();
+        var service = new GameService(dataAccess);
+        var gameData = service.createGame("replay");
+        for (var move : new String[]{"e2e4", "e7e5", "g1f3", "b8c6"}) {
+            gameData.game().makeMove(new ChessMove(move));
+        }
+        // A reloaded game has no versions before its last move.
+        dataAccess.updateGame(gameData.setGame(ChessGame.create(gameData.game().toString())));
+
+        Assertions.assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+                Fen.format(service.position(gameData.gameID(), 2)));
+        Assertions.assertEquals(Fen.format(gameData.game()), Fen.format(service.position(gameData.gameID(), null)));
+        Assertions.assertThrows(CodedException.class, () -> service.position(gameData.gameID(), 5));
+        Assertions.assertThrows(CodedException.class, () -> service.position(gameData.gameID() + 1, 0));
+    }
+
+    @Test
+    public void botUsernameIsReserved() {
+        var service = new UserService(new MemoryDataAccess());
+        var user = new UserData(BotService.USERNAME, "too many secrets", "bot@byu.edu");
+
+        Assertions.assertThrows(CodedException.class, () -> service.registerUser(user));
+    }
+}
@@ -1,25 +1,147 @@
 package chess;
 
+import chess.rules.Attacks;
+import chess.rules.MoveGenerator;
+
 import java.util.*;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * The board is stored as bitboards: one 64-bit mask per piece type and color, plus
+ * an occupancy mask per color. Bit {@code (row - 1) * 8 + (column - 1)} represents a
+ * square, so a1 is bit 0 and h8 is bit 63.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
 public class ChessBoard {
-    final private ChessPiece[][] squares = new ChessPiece[8][8];
-    final public ArrayList<ChessMove> history = new ArrayList<>();
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessPiece[] PIECES = new ChessPiece[COLORS.length * TYPES.length];
+
+    static {
+        for (var color : COLORS) {
+            for (var type : TYPES) {
+                PIECES[pieceIndex(color, type)] = ChessPiece.of(color, type);
+            }
+        }
+    }
+
+    final private long[] pieces = new long[PIECES.length];
+    final private long[] colors = new long[COLORS.length];
+    private long occupied;
+    private long hash;
+    private int castlingRights = ALL_CASTLING;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    /*
+     * The moves made, packed as in PackedMove without flags, two bytes a ply. getHistory() is a
+     * view that unpacks them to the shared ChessMove instances. The JSON and binary forms of a
+     * game write the history themselves, so Gson skips it.
+     */
+    private transient short[] history = new short[32];
+    private transient int historySize;
+    private final transient List<ChessMove> historyView = new HistoryView();
+
+    /*
+     * Draw detection state kept up to date move by move: the count of each piece index, four
+     * bits per index, and the positions left since the board was set up.
+     */
+    private transient long material;
+    private transient Repetitions repetitions;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+
+    /*
+     * The castling rights that survive a move from or to each square. Moving a king or rook,
+     * or capturing a rook on its corner, gives up the matching rights.
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[square(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[square(1, 8)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[square(1, 1)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[square(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[square(8, 8)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[square(8, 1)] &= ~BLACK_QUEENSIDE;
+    }
+
+    /*
+     * For isInsufficientMaterial: the material counts of queens, rooks and pawns, any of which
+     * can still force mate, and the light squares, since bishops all on one square color cannot.
+     */
+    private static final long HEAVY_MATERIAL;
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    static {
+        long heavy = 0;
+        for (var color : COLORS) {
+            for (var type : new ChessPiece.PieceType[]{ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.PAWN}) {
+                heavy |= 0xFL << (pieceIndex(color, type) * 4);
+            }
+        }
+        HEAVY_MATERIAL = heavy;
+    }
+
+    /*
+     * Undo records for makeMove/unmakeMove. Each record packs the moved piece (bits 0-3),
+     * the captured piece + 1 (bits 4-7), the capture square (bits 8-13), flags, and the castling
+     * rights (bits 16-19), en passant square + 1 (bits 20-26) and halfmove clock (bits 32-47)
+     * from before the move.
+     */
+    private static final long UNDO_PROMOTION = 1L << 14;
+    private static final long UNDO_CASTLE = 1L << 15;
+    private transient long[] undo = new long[32];
+    private transient int undoSize;
 
     public ChessBoard() {
     }
 
 
     public ChessBoard(ChessBoard copy) {
-        for (var i = 0; i < 8; i++) {
-            System.arraycopy(copy.squares[i], 0, squares[i], 0, 8);
-        }
+        System.arraycopy(copy.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(copy.colors, 0, colors, 0, colors.length);
+        occupied = copy.occupied;
+        hash = copy.hash;
+        castlingRights = copy.castlingRights;
+        enPassantSquare = copy.enPassantSquare;
+        halfmoveClock = copy.halfmoveClock;
+        material = copy.material;
+        repetitions = copy.repetitions == null ? null : new Repetitions(copy.repetitions);
+        history = Arrays.copyOf(copy.history, Math.max(copy.historySize, 32));
+        historySize = copy.historySize;
+    }
+
+    /**
+     * @return the bitboard index of the given square.
+     */
+    public static int square(int row, int col) {
+        return ((row - 1) << 3) + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return the position of the given bitboard square.
+     */
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(square);
+    }
+
+    /**
+     * @return the index into the piece bitboards for the given color and type.
+     */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * TYPES.length + type.ordinal();
     }
 
     /**
@@ -29,7 +151,11 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        var square = square(position);
+        clearSquare(square);
+        if (piece != null) {
+            setSquare(square, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -40,7 +166,82 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return squares[position.getRow() - 1][position.getColumn() - 1];
+        return getPiece(square(position));
+    }
+
+    /**
+     * Gets the chess piece on the given bitboard square.
+     */
+    public ChessPiece getPiece(int square) {
+        var index = pieceIndexAt(square);
+        return index < 0 ? null : PIECES[index];
+    }
+
+    /**
+     * @return the piece bitboard index at the square, or -1 if the square is empty.
+     */
+    public int pieceIndexAt(int square) {
+        var bit = 1L << square;
+        if ((occupied & bit) == 0) {
+            return -1;
+        }
+        var first = (colors[0] & bit) != 0 ? 0 : TYPES.length;
+        for (var i = first; i < first + TYPES.length; i++) {
+            if ((pieces[i] & bit) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the bitboard of every piece of the given color and type.
+     */
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    /**
+     * @return the bitboard of every piece of the given color.
+     */
+    public long pieces(ChessGame.TeamColor color) {
+        return colors[color.ordinal()];
+    }
+
+    /**
+     * @return the bitboard of every occupied square.
+     */
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * @return the Zobrist key of the piece placement. It is updated incrementally as pieces
+     * are added, moved and removed.
+     */
+    public long hash() {
+        return hash;
+    }
+
+    private void setSquare(int square, int index) {
+        var bit = 1L << square;
+        pieces[index] |= bit;
+        colors[index / TYPES.length] |= bit;
+        occupied |= bit;
+        hash ^= Zobrist.piece(index, square);
+        material += 1L << (index * 4);
+    }
+
+    private void clearSquare(int square) {
+        var index = pieceIndexAt(square);
+        if (index >= 0) {
+            var bit = ~(1L << square);
+            pieces[index] &= bit;
+            colors[index / TYPES.length] &= bit;
+            occupied &= bit;
+            hash ^= Zobrist.piece(index, square);
+            material -= 1L << (index * 4);
+        }
     }
 
     /**
@@ -48,7 +249,7 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        var pieces = new ChessPiece.PieceType[]{
+        var backRow = new ChessPiece.PieceType[]{
                 ChessPiece.PieceType.ROOK,
                 ChessPiece.PieceType.KNIGHT,
                 ChessPiece.PieceType.BISHOP,
@@ -58,104 +259,220 @@ public class ChessBoard {
                 ChessPiece.PieceType.KNIGHT,
                 ChessPiece.PieceType.ROOK
         };
+        Arrays.fill(pieces, 0);
+        Arrays.fill(colors, 0);
+        occupied = 0;
+        hash = 0;
+        material = 0;
+        castlingRights = ALL_CASTLING;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        repetitions = null;
         for (var i = 0; i < 8; i++) {
-            squares[0][i] = new ChessPiece(ChessGame.TeamColor.WHITE, pieces[i]);
-            squares[1][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-            squares[2][i] = null;
-            squares[3][i] = null;
-            squares[4][i] = null;
-            squares[5][i] = null;
-            squares[6][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-            squares[7][i] = new ChessPiece(ChessGame.TeamColor.BLACK, pieces[i]);
+            setSquare(square(1, i + 1), pieceIndex(ChessGame.TeamColor.WHITE, backRow[i]));
+            setSquare(square(2, i + 1), pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            setSquare(square(7, i + 1), pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            setSquare(square(8, i + 1), pieceIndex(ChessGame.TeamColor.BLACK, backRow[i]));
         }
     }
 
+    /**
+     * Determines if the move is legal for the piece on its start square, whichever team is to
+     * move. The move is checked against the piece's legal moves, found with pin and check masks,
+     * so the board is never changed and readers on other threads never see a half-made move.
+     */
     public boolean isMoveLegal(ChessMove move) {
         var piece = getPiece(move.getStartPosition());
+        if (piece == null) {
+            return false;
+        }
+        var moves = new MoveList();
+        MoveGenerator.legalMoves(this, piece.getTeamColor(), 1L << square(move.getStartPosition()), moves);
+        return moves.contains(PackedMove.encode(move));
+    }
 
-        // Test if this move was a castle, and if so is it valid.
-        if (isMoveCastle(piece, move)) {
-            if (!isCastleValid(piece, move)) {
-                return false;
+    public void movePiece(ChessMove move) {
+        applyMove(move);
+    }
+
+    /**
+     * Makes a move in place and remembers how to take it back. Every call must be
+     * paired with a later call to {@link #unmakeMove()}.
+     *
+     * @param move to make. The move is not validated.
+     */
+    public void makeMove(ChessMove move) {
+        if (undoSize == undo.length) {
+            undo = Arrays.copyOf(undo, undo.length * 2);
+        }
+        undo[undoSize++] = applyMove(move);
+    }
+
+    /**
+     * Makes a {@link PackedMove packed} move in place. Every call must be paired with a later
+     * call to {@link #unmakeMove()}.
+     */
+    public void makeMove(int move) {
+        makeMove(PackedMove.toChessMove(move));
+    }
+
+    /**
+     * Takes back the most recent move made with {@link #makeMove(ChessMove)}.
+     */
+    public void unmakeMove() {
+        var record = undo[--undoSize];
+        var move = PackedMove.toChessMove(history[--historySize] & PackedMove.MOVE_MASK);
+        var from = square(move.getStartPosition());
+        var to = square(move.getEndPosition());
+
+        if ((record & UNDO_CASTLE) != 0) {
+            var row = move.getEndPosition().getRow();
+            if (move.getEndPosition().getColumn() == 7) {
+                relocate(square(row, 6), square(row, 8));
+            } else {
+                relocate(square(row, 4), square(row, 1));
             }
         }
 
-        // Test if this move causes the team's king to be put in check.
-        var newBoard = new ChessBoard(this);
-        newBoard.movePiece(move);
-        var king = newBoard.getPlacement(piece.getTeamColor(), ChessPiece.PieceType.KING);
-        return king == null || !king.isAttacked(newBoard);
+        clearSquare(to);
+        setSquare(from, (int) (record & 0xF));
+
+        var captured = (int) ((record >>> 4) & 0xF) - 1;
+        if (captured >= 0) {
+            setSquare((int) ((record >>> 8) & 0x3F), captured);
+        }
+
+        castlingRights = (int) ((record >>> 16) & 0xF);
+        enPassantSquare = (int) ((record >>> 20) & 0x7F) - 1;
+        halfmoveClock = (int) ((record >>> 32) & 0xFFFF);
+        repetitions.pop();
     }
 
-    public void movePiece(ChessMove move) {
-        var piece = getPiece(move.getStartPosition());
+    /**
+     * Moves the piece, handling promotion, castling and en passant, and appends the move
+     * to the history.
+     *
+     * @return the undo record that {@link #unmakeMove()} uses to restore the board.
+     */
+    private long applyMove(ChessMove move) {
+        var from = square(move.getStartPosition());
+        var to = square(move.getEndPosition());
+        var moved = pieceIndexAt(from);
+        var type = TYPES[moved % TYPES.length];
+        long record = moved | ((long) castlingRights << 16) | ((long) (enPassantSquare + 1) << 20)
+                | ((long) Math.min(halfmoveClock, 0xFFFF) << 32);
+        if (repetitions == null) {
+            repetitions = new Repetitions();
+        }
+        repetitions.push(repetitionKey(), halfmoveClock);
 
+        var index = moved;
+        var captureSquare = to;
         // Handle promotion
         if (move.getPromotionPiece() != null) {
-            piece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
+            index = moved - type.ordinal() + move.getPromotionPiece().ordinal();
+            record |= UNDO_PROMOTION;
         }
         // Handle castle
-        else if ((piece.getPieceType() == ChessPiece.PieceType.KING) &&
+        else if ((type == ChessPiece.PieceType.KING) &&
                 (Math.abs(move.getStartPosition().getColumn() - move.getEndPosition().getColumn()) == 2)) {
             castle(move);
+            record |= UNDO_CASTLE;
         }
         // Handle en passant
-        else if ((piece.getPieceType() == ChessPiece.PieceType.PAWN) &&
+        else if ((type == ChessPiece.PieceType.PAWN) &&
                 (move.getStartPosition().getColumn() != move.getEndPosition().getColumn()) &&
-                (getPiece(move.getEndPosition()) == null)) {
-            enPassant(move);
+                (getPiece(to) == null)) {
+            captureSquare = enPassantCaptureSquare(move);
         }
 
-        removePiece(move.getStartPosition());
-        addPiece(move.getEndPosition(), piece);
+        var captured = pieceIndexAt(captureSquare);
+        if (captured >= 0) {
+            clearSquare(captureSquare);
+            record |= ((long) (captured + 1) << 4) | ((long) captureSquare << 8);
+        }
 
-        history.add(move);
+        clearSquare(from);
+        setSquare(to, index);
+
+        halfmoveClock = type == ChessPiece.PieceType.PAWN || captured >= 0 ? 0 : halfmoveClock + 1;
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        enPassantSquare = -1;
+        if (type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16) {
+            var mover = COLORS[moved / TYPES.length];
+            var passed = (from + to) / 2;
+            if ((Attacks.pawn(mover, passed) & pieces(mover.opponent(), ChessPiece.PieceType.PAWN)) != 0) {
+                enPassantSquare = passed;
+            }
+        }
+
+        appendHistory(PackedMove.encode(move));
+        return record;
     }
 
 
     public void enPassant(ChessMove move) {
-        var killRow = move.getEndPosition().getRow() == 6 ? 5 : 4;
-        var killPosition = new ChessPosition(killRow, move.getEndPosition().getColumn());
+        clearSquare(enPassantCaptureSquare(move));
+    }
 
-        removePiece(killPosition);
+    private static int enPassantCaptureSquare(ChessMove move) {
+        var killRow = move.getEndPosition().getRow() == 6 ? 5 : 4;
+        return square(killRow, move.getEndPosition().getColumn());
     }
 
+    /**
+     * Moves the rook that accompanies a castling king. The rook move is part of the king's
+     * move and so is not recorded in the history.
+     */
     public void castle(ChessMove move) {
         var row = move.getEndPosition().getRow();
-        var rookMove = new ChessMove(new ChessPosition(row, 1), new ChessPosition(row, 4), null);
         if (move.getEndPosition().getColumn() == 7) {
-            rookMove = new ChessMove(new ChessPosition(row, 8), new ChessPosition(row, 6), null);
+            relocate(square(row, 8), square(row, 6));
+        } else {
+            relocate(square(row, 1), square(row, 4));
         }
-        movePiece(rookMove);
     }
 
-    private void removePiece(ChessPosition position) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = null;
+    private void relocate(int from, int to) {
+        var index = pieceIndexAt(from);
+        if (index >= 0) {
+            clearSquare(from);
+            clearSquare(to);
+            setSquare(to, index);
+        }
     }
 
     public ChessPlacement getPlacement(ChessGame.TeamColor color, ChessPiece.PieceType type) {
-        for (var placement : collection()) {
-            if (placement.getPiece().getTeamColor() == color && placement.getPiece().getPieceType() == type) {
-                return placement;
-            }
+        var index = pieceIndex(color, type);
+        if (pieces[index] == 0) {
+            return null;
         }
-        return null;
+        var square = Long.numberOfTrailingZeros(pieces[index]);
+        return new ChessPlacement(PIECES[index], position(square));
     }
 
 
     public boolean isAttacked(ChessPosition targetPos, ChessGame.TeamColor targetColor) {
-        return !getAttackers(targetPos, targetColor).isEmpty();
+        return isAttacked(square(targetPos), targetColor.opponent());
+    }
+
+    /**
+     * Determines if any piece of the attacking color attacks the square. This looks outward
+     * from the square along knight, pawn, king and sliding rays and stops at the first attacker.
+     *
+     * @param square         bitboard square to test
+     * @param attackingColor the team whose pieces may be attacking
+     */
+    public boolean isAttacked(int square, ChessGame.TeamColor attackingColor) {
+        return Attacks.isAttacked(this, square, attackingColor, occupied);
     }
 
     public Collection<ChessPlacement> collection() {
-        var result = new ArrayList<ChessPlacement>();
+        var result = new ArrayList<ChessPlacement>(Long.bitCount(occupied));
 
-        for (var i = 0; i < 8; i++) {
-            for (var j = 0; j < 8; j++) {
-                if (squares[i][j] != null) {
-                    result.add(new ChessPlacement(squares[i][j], new ChessPosition(i + 1, j + 1)));
-                }
-            }
+        for (var remaining = occupied; remaining != 0; remaining &= remaining - 1) {
+            var square = Long.numberOfTrailingZeros(remaining);
+            result.add(new ChessPlacement(getPiece(square), position(square)));
         }
         return result;
     }
@@ -164,70 +481,217 @@ public class ChessBoard {
     public Collection<ChessPosition> getAttackers(ChessPosition targetPos, ChessGame.TeamColor targetColor) {
         var attackers = new ArrayList<ChessPosition>();
 
-        for (var candidateAttacker : collection()) {
-            if (candidateAttacker.getPiece().getTeamColor() != targetColor) {
-                var moves = candidateAttacker.pieceMoves(this);
-                for (var move : moves) {
-                    if (move.getEndPosition().equals(targetPos)) {
-                        attackers.add(candidateAttacker.getPos());
-                        break;
-                    }
-                }
-            }
+        var bits = Attacks.attackersTo(this, square(targetPos), targetColor.opponent(), occupied);
+        for (; bits != 0; bits &= bits - 1) {
+            attackers.add(position(Long.numberOfTrailingZeros(bits)));
         }
         return attackers;
     }
 
+    /**
+     * @return a read-only view of the moves made, which reflects later moves.
+     */
     public List<ChessMove> getHistory() {
-        return history;
+        return historyView;
+    }
+
+    /**
+     * Appends to the history without making the move, for a board set up from a stored form.
+     *
+     * @param move packed as in {@link PackedMove}. Flags are dropped.
+     */
+    void appendHistory(int move) {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+        }
+        history[historySize++] = (short) (move & PackedMove.MOVE_MASK);
+    }
+
+    void appendHistory(Collection<ChessMove> moves) {
+        for (var move : moves) {
+            appendHistory(PackedMove.encode(move));
+        }
     }
 
     public boolean isSquareEmpty(int row, int col) {
-        var pieceAt = getPiece(new ChessPosition(row, col));
-        return pieceAt == null;
+        return (occupied & (1L << square(row, col))) == 0;
     }
 
 
+    /**
+     * @return the most recent move, or null if no moves have been made.
+     */
     public ChessMove getLastMove() {
-        return history.get(history.size() - 1);
+        return historySize == 0 ? null : PackedMove.toChessMove(history[historySize - 1] & PackedMove.MOVE_MASK);
     }
 
-    public boolean isOriginalPosition(ChessPosition pos) {
-        for (var bh : getHistory()) {
-            if (bh.getStartPosition().equals(pos)) {
-                return false;
+    /**
+     * @return the castling rights still available, as a combination of {@link #WHITE_KINGSIDE},
+     * {@link #WHITE_QUEENSIDE}, {@link #BLACK_KINGSIDE} and {@link #BLACK_QUEENSIDE}. A right
+     * is lost once its king or rook moves or the rook is captured. Castling also requires the
+     * king and rook to be on their original squares.
+     */
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Sets the castling rights, for example when setting up a position with {@link #addPiece}.
+     * A new board starts with every right.
+     */
+    public void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights & ALL_CASTLING;
+    }
+
+    /**
+     * @return the square a pawn that just advanced two squares passed over, if an enemy pawn is
+     * in place to capture it en passant, otherwise -1.
+     */
+    public int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Sets the en passant target square, or -1 for none.
+     */
+    public void setEnPassantSquare(int enPassantSquare) {
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    /**
+     * @return the number of moves since the last capture or pawn move.
+     */
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Sets the halfmove clock, for example when setting up a position from FEN.
+     */
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = Math.max(0, halfmoveClock);
+    }
+
+    /**
+     * Counts the occurrences of the current position, with the same team to move, castling
+     * rights and en passant square, among the positions since the last capture or pawn move.
+     * Positions from before the board was set up are not known.
+     *
+     * @return the number of times the position has occurred, including now.
+     */
+    public int repetitions() {
+        return repetitions == null ? 1 : repetitions.count(repetitionKey(), halfmoveClock);
+    }
+
+    private long repetitionKey() {
+        return hash ^ Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+    }
+
+    /**
+     * Determines if neither team has the material to checkmate: only kings and at most one
+     * knight or bishop, or only kings and bishops that all stand on squares of one color.
+     */
+    public boolean isInsufficientMaterial() {
+        if ((material & HEAVY_MATERIAL) != 0) {
+            return false;
+        }
+        var bishops = pieces[pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP)]
+                | pieces[pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP)];
+        var knights = count(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT) + count(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        if (knights + Long.bitCount(bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    private int count(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return (int) ((material >>> (pieceIndex(color, type) * 4)) & 0xF);
+    }
+
+    /**
+     * Recomputes the state that is kept up to date by moves, for the forms of a game that do not
+     * store it: those Gson wrote by reflection, where it set the board's fields directly, and the
+     * first binary form. The Zobrist key is recomputed too, since games stored before it existed
+     * have none and the shared {@link PositionCache} trusts it. The positions since the last
+     * capture or pawn move are recovered by replaying the history from the starting position,
+     * when that leads here. Current forms store those positions and use {@link #restoreState}.
+     */
+    public void restoreDerivedState() {
+        restorePieceState();
+        if (historySize > 0) {
+            var replay = new ChessBoard();
+            replay.resetBoard();
+            for (var i = 0; i < historySize; i++) {
+                replay.movePiece(PackedMove.toChessMove(history[i] & PackedMove.MOVE_MASK));
+            }
+            if (replay.repetitionKey() == repetitionKey() && Arrays.equals(replay.pieces, pieces)) {
+                repetitions = replay.repetitions;
+                halfmoveClock = replay.halfmoveClock;
             }
         }
-        return true;
     }
 
+    /**
+     * @return the keys of the positions left since the last capture or pawn move, oldest first,
+     * which a stored game keeps so that {@link #restoreState} need not replay its history.
+     */
+    long[] repetitionKeys() {
+        return repetitions == null ? new long[0] : repetitions.keys(halfmoveClock);
+    }
 
-    private boolean isMoveCastle(ChessPiece piece, ChessMove move) {
-        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-            return Math.abs(move.getStartPosition().getColumn() - move.getEndPosition().getColumn()) == 2;
+    /**
+     * Recomputes the material and Zobrist key from the pieces and restores the positions left
+     * since the last capture or pawn move, so a stored game counts repetitions as it did before.
+     *
+     * @param repetitionKeys as returned by {@link #repetitionKeys()}
+     */
+    void restoreState(long[] repetitionKeys) {
+        restorePieceState();
+        if (repetitionKeys.length > 0) {
+            repetitions = new Repetitions();
+            for (var i = 0; i < repetitionKeys.length; i++) {
+                repetitions.push(repetitionKeys[i], i);
+            }
         }
-        return false;
     }
 
+    /**
+     * Recomputes the material and Zobrist key from the pieces and forgets the positions left.
+     */
+    private void restorePieceState() {
+        material = 0;
+        hash = 0;
+        for (var index = 0; index < pieces.length; index++) {
+            material += (long) Long.bitCount(pieces[index]) << (index * 4);
+            for (var bits = pieces[index]; bits != 0; bits &= bits - 1) {
+                hash ^= Zobrist.piece(index, Long.numberOfTrailingZeros(bits));
+            }
+        }
+        repetitions = null;
+    }
 
-    private boolean isCastleValid(ChessPiece king, ChessMove move) {
-        var color = king.getTeamColor();
-        var teamRow = color == ChessGame.TeamColor.BLACK ? 8 : 1;
-        // Make sure king not being attacked.
-        if (posNotAttacked(teamRow, 5, color)) {
-            var castleLeft = move.getEndPosition().getColumn() == 3;
-            if (castleLeft) {
-                return posNotAttacked(teamRow, 3, color) && posNotAttacked(teamRow, 4, color);
-            } else {
-                return posNotAttacked(teamRow, 6, color) && posNotAttacked(teamRow, 7, color);
+    public boolean isOriginalPosition(ChessPosition pos) {
+        var from = square(pos);
+        for (var i = 0; i < historySize; i++) {
+            if (PackedMove.from(history[i]) == from) {
+                return false;
             }
         }
-        return false;
+        return true;
     }
 
-    private boolean posNotAttacked(int row, int col, ChessGame.TeamColor color) {
-        var pos = new ChessPosition(row, col);
-        return !isAttacked(pos, color);
+
+    private final class HistoryView extends AbstractList<ChessMove> implements RandomAccess {
+        @Override
+        public ChessMove get(int index) {
+            Objects.checkIndex(index, historySize);
+            return PackedMove.toChessMove(history[index] & PackedMove.MOVE_MASK);
+        }
+
+        @Override
+        public int size() {
+            return historySize;
+        }
     }
 
     @Override
@@ -235,12 +699,12 @@ public class ChessBoard {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ChessBoard board = (ChessBoard) o;
-        return Arrays.deepEquals(squares, board.squares);
+        return hash == board.hash && Arrays.equals(pieces, board.pieces);
     }
 
     @Override
     public int hashCode() {
-        return 31 * Arrays.deepHashCode(squares);
+        return Long.hashCode(hash);
     }
 
 
@@ -311,10 +775,10 @@ public class ChessBoard {
                 sb.append(BORDER).append(row).append(COLOR_RESET);
                 for (var j : columns) {
                     var squareColor = currentSquare;
-                    if (highlights != null && highlights.contains(new ChessPosition(i + 1, j + 1))) {
+                    if (highlights != null && highlights.contains(ChessPosition.of(i + 1, j + 1))) {
                         squareColor = BOARD_HIGHLIGHT;
                     }
-                    var piece = squares[i][j];
+                    var piece = getPiece(square(i + 1, j + 1));
                     if (piece != null) {
                         var color = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? WHITE_PIECE : BLACK_PIECE;
                         var p = pieceMap.get(piece.getPieceType());
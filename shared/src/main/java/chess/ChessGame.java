@@ -1,7 +1,5 @@
 package chess;
 
-import com.google.gson.Gson;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
@@ -15,6 +13,10 @@ import java.util.Objects;
 public class ChessGame {
     private ChessBoard board;
     private TeamColor turn;
+    private transient volatile GameSnapshot snapshot;
+    // Odd while a move is being made, so snapshot() on another thread does not read a half-made move.
+    private transient volatile int moveSequence;
+    private transient volatile GameCheckpoints checkpoints;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -22,7 +24,7 @@ public class ChessGame {
     }
 
     public static ChessGame create(String serializedGame) {
-        return new Gson().fromJson(serializedGame, ChessGame.class);
+        return ChessJson.gson().fromJson(serializedGame, ChessGame.class);
     }
 
     /**
@@ -46,7 +48,14 @@ public class ChessGame {
      */
     public enum TeamColor {
         WHITE,
-        BLACK
+        BLACK;
+
+        /**
+         * @return the other team
+         */
+        public TeamColor opponent() {
+            return this == WHITE ? BLACK : WHITE;
+        }
     }
 
     /**
@@ -58,20 +67,26 @@ public class ChessGame {
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         var validMoves = new ArrayList<ChessMove>();
-        var piece = board.getPiece(startPosition);
+        var square = ChessBoard.square(startPosition);
+        var piece = board.getPiece(square);
         if (piece != null) {
-            var possibleMoves = piece.pieceMoves(board, startPosition);
-
-            // Make sure none of the possible moves are illegal.
-            for (var move : possibleMoves) {
-                if (board.isMoveLegal(move)) {
-                    validMoves.add(move);
-                }
-            }
+            PositionCache.shared().lookup(board, piece.getTeamColor()).addTo(validMoves, square);
         }
         return validMoves;
     }
 
+    /**
+     * Gets all the valid moves for a team
+     *
+     * @param teamColor the team to get valid moves for
+     * @return Every legal move the team could make
+     */
+    public Collection<ChessMove> allValidMoves(TeamColor teamColor) {
+        var validMoves = new ArrayList<ChessMove>();
+        PositionCache.shared().lookup(board, teamColor).addTo(validMoves);
+        return validMoves;
+    }
+
     /**
      * Makes a move in a chess game
      *
@@ -79,21 +94,67 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        var piece = board.getPiece(move.getStartPosition());
-        if (piece != null) {
-            if (piece.getTeamColor() == turn) {
-                var validMoves = piece.pieceMoves(board, move.getStartPosition());
-                if (validMoves.contains(move)) {
-                    if (board.isMoveLegal(move)) {
-                        board.movePiece(move);
-                        turn = (turn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
-                        return;
-                    }
-                }
-            }
+        applyMove(move);
+    }
+
+    /**
+     * Makes a move and reports its outcome. The status of the team now to move comes from
+     * the shared {@link PositionCache} and the board's draw counters, so callers do not need
+     * to ask for check, checkmate, stalemate and the other draws separately.
+     *
+     * @param move chess move to preform
+     * @return the outcome of the move
+     * @throws InvalidMoveException if move is invalid
+     */
+    public MoveOutcome play(ChessMove move) throws InvalidMoveException {
+        var mover = turn;
+        var captured = applyMove(move);
+
+        var position = PositionCache.shared().lookup(board, turn);
+        var check = position.isCheck();
+        MoveOutcome.Status status;
+        if (position.isEmpty()) {
+            status = check ? MoveOutcome.Status.CHECKMATE : MoveOutcome.Status.STALEMATE;
+        } else if (board.isInsufficientMaterial()) {
+            status = MoveOutcome.Status.INSUFFICIENT_MATERIAL;
+        } else if (board.repetitions() >= 3) {
+            status = MoveOutcome.Status.REPETITION;
+        } else if (board.halfmoveClock() >= 100) {
+            status = MoveOutcome.Status.FIFTY_MOVES;
+        } else {
+            status = check ? MoveOutcome.Status.CHECK : MoveOutcome.Status.NORMAL;
+        }
+        return new MoveOutcome(move, mover, captured, status);
+    }
+
+    /**
+     * Validates and makes the move, then passes the turn.
+     *
+     * @return the captured piece, or null
+     */
+    private ChessPiece applyMove(ChessMove move) throws InvalidMoveException {
+        if (!move.getStartPosition().isValid() || !move.getEndPosition().isValid()) {
+            throw new InvalidMoveException(String.format("Move %s is not valid", move));
+        }
+        var from = ChessBoard.square(move.getStartPosition());
+        var piece = board.getPiece(from);
+        var before = snapshot();
+        var packed = 0;
+        if (piece != null && piece.getTeamColor() == turn) {
+            packed = PositionCache.shared().lookup(board, turn).find(PackedMove.encode(move));
+        }
+        if (packed == 0) {
+            throw new InvalidMoveException(String.format("Move %s is not valid", move));
         }
 
-        throw new InvalidMoveException(String.format("Move %s is not valid", move));
+        var to = PackedMove.to(packed);
+        var captured = PackedMove.hasFlag(packed, PackedMove.EN_PASSANT) ? board.getPiece(to ^ 8) : board.getPiece(to);
+        moveSequence++;
+        board.movePiece(move);
+        turn = turn.opponent();
+        snapshot = before.next(board, turn, move);
+        moveSequence++;
+        return captured;
     }
 
     /**
@@ -103,9 +164,9 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        var king = board.getPlacement(teamColor, ChessPiece.PieceType.KING);
+        var king = board.pieces(teamColor, ChessPiece.PieceType.KING);
 
-        return king.isAttacked(board);
+        return king != 0 && board.isAttacked(Long.numberOfTrailingZeros(king), teamColor.opponent());
     }
 
     /**
@@ -115,27 +176,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        var king = board.getPlacement(teamColor, ChessPiece.PieceType.KING);
-
-        // Is the king being attacked?
-        if (!king.isAttacked(board)) {
-            return false;
-        }
-
-        // Try every move on the board and see if it gets us out of this.
-        for (var placement : board.collection()) {
-            if (placement.getPiece().getTeamColor() == teamColor) {
-                for (var move : placement.pieceMoves(board)) {
-                    var newBoard = new ChessBoard(board);
-                    newBoard.movePiece(move);
-                    var kingPlacement = newBoard.getPlacement(teamColor, ChessPiece.PieceType.KING);
-                    if (!kingPlacement.isAttacked(newBoard)) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return PositionCache.shared().lookup(board, teamColor).isCheckmate();
     }
 
     /**
@@ -146,20 +187,88 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        // Is the king being attacked?
-        var king = board.getPlacement(teamColor, ChessPiece.PieceType.KING);
-        if (king.isAttacked(board)) {
-            return false;
-        }
-        // Does the player have any valid moves?
-        for (var placement : board.collection()) {
-            if (placement.getPiece().getTeamColor() == teamColor) {
-                if (!validMoves(placement.getPos()).isEmpty()) {
-                    return false;
-                }
+        return PositionCache.shared().lookup(board, teamColor).isStalemate();
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the position. Two games with the same pieces, team to move,
+     * castling rights and en passant square have the same key.
+     *
+     * @return the position key
+     */
+    public long positionKey() {
+        return Zobrist.position(board, turn);
+    }
+
+    /**
+     * Gets the current version of the game as an immutable snapshot. Moves made through this
+     * game extend the snapshot's chain, and a board changed directly starts a new chain. It is
+     * safe to call while another thread is making a move, in which case it returns the version
+     * from before the move.
+     *
+     * @return the snapshot of the current position
+     */
+    public GameSnapshot snapshot() {
+        var sequence = moveSequence;
+        var current = snapshot;
+        if ((sequence & 1) == 0 && (current == null || !current.matches(board, turn))) {
+            var rebuilt = GameSnapshot.of(board, turn);
+            if (moveSequence != sequence) {
+                return snapshot;
             }
+            current = rebuilt;
+            snapshot = current;
+        }
+        return current;
+    }
+
+    void setSnapshot(GameSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Gets the position after the given number of moves. Versions made since the game was
+     * created or loaded come from the snapshot chain, and earlier ones are rebuilt from the
+     * nearest of the game's checkpoints, so fewer than {@link GameCheckpoints#DEFAULT_INTERVAL}
+     * moves are replayed.
+     *
+     * @param ply the number of moves, from 0 up to the length of the history
+     * @return a new game in that position
+     * @throws IllegalArgumentException if the ply is outside the history, or the history does
+     *                                  not lead from the starting position to this one.
+     */
+    public ChessGame atPly(int ply) {
+        var version = snapshot();
+        if (ply < 0 || ply > version.ply()) {
+            throw new IllegalArgumentException(String.format("ply must be between 0 and %d", version.ply()));
+        }
+        var earlier = version.at(ply);
+        if (earlier != null) {
+            return earlier.toGame();
         }
-        return true;
+        return checkpoints(version).at(ply);
+    }
+
+    /**
+     * @return checkpoints covering the current history, extended from those kept earlier.
+     */
+    public GameCheckpoints checkpoints() {
+        return checkpoints(snapshot());
+    }
+
+    private GameCheckpoints checkpoints(GameSnapshot version) {
+        var current = checkpoints;
+        current = current == null ? GameCheckpoints.of(version, GameCheckpoints.DEFAULT_INTERVAL) : current.extend(version);
+        checkpoints = current;
+        return current;
+    }
+
+    /**
+     * Reuses checkpoints made for another copy of this game, such as one read before its
+     * latest moves. They are replaced when used if the histories differ.
+     */
+    public void setCheckpoints(GameCheckpoints checkpoints) {
+        this.checkpoints = checkpoints;
     }
 
     /**
@@ -201,6 +310,6 @@ public class ChessGame {
 
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return ChessJson.gson().toJson(this);
     }
 }
@@ -0,0 +1,292 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JSON forms of games, moves and positions, shared by the server and the client. A game
+ * is written as the FEN of its position, its moves in coordinate notation and the keys of the
+ * positions since the last capture or pawn move, which count repetitions without replaying the
+ * moves, such as {@code {"fen": "...", "moves": ["e2e4", "e7e5"], "repetitions": []}}. A move
+ * is written as {@code "e7e8q"} and a position as {@code "e4"}.
+ * <p>
+ * A {@link GameSnapshot} is written in the same form as a game.
+ * <p>
+ * Reading also accepts the forms Gson wrote by reflection: moves and positions as objects,
+ * and games either with bitboards or, as first stored, with an 8x8 array of squares.
+ */
+public class ChessJson {
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new GameAdapter().nullSafe())
+            .registerTypeAdapter(GameSnapshot.class, new SnapshotAdapter().nullSafe())
+            .registerTypeAdapter(ChessMove.class, new MoveAdapter().nullSafe())
+            .registerTypeAdapter(ChessPosition.class, new PositionAdapter().nullSafe())
+            .create();
+
+    // Reads the reflective forms of a game, which must not come back through the adapters.
+    private static final Gson REFLECTIVE = new Gson();
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+
+    /**
+     * @return a Gson with the chess adapters registered. It is thread safe.
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    private static class GameAdapter extends TypeAdapter<ChessGame> {
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            writeGame(out, Fen.format(game), game.getBoard().getHistory(), game.getBoard().repetitionKeys());
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            return readGame(JsonParser.parseReader(in));
+        }
+    }
+
+    /**
+     * Writes a version of a game in the same form as a game, without building the game.
+     */
+    private static class SnapshotAdapter extends TypeAdapter<GameSnapshot> {
+        @Override
+        public void write(JsonWriter out, GameSnapshot version) throws IOException {
+            writeGame(out, Fen.format(version), version.history(), version.repetitionKeys());
+        }
+
+        @Override
+        public GameSnapshot read(JsonReader in) throws IOException {
+            return readGame(JsonParser.parseReader(in)).snapshot();
+        }
+    }
+
+    private static void writeGame(JsonWriter out, String fen, List<ChessMove> history, long[] repetitions) throws IOException {
+        out.beginObject();
+        out.name("fen").value(fen);
+        out.name("moves").beginArray();
+        for (var move : history) {
+            out.value(move.notation());
+        }
+        out.endArray();
+        out.name("repetitions").beginArray();
+        for (var key : repetitions) {
+            out.value(key);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private static class MoveAdapter extends TypeAdapter<ChessMove> {
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            out.value(move.notation());
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                return readMove(in.nextString());
+            }
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "start" -> start = GSON.fromJson(in, ChessPosition.class);
+                    case "end" -> end = GSON.fromJson(in, ChessPosition.class);
+                    case "promotionPiece" -> promotion = GSON.fromJson(in, ChessPiece.PieceType.class);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (start == null || end == null) {
+                throw new JsonParseException("Move needs a start and an end");
+            }
+            return new ChessMove(start, end, promotion);
+        }
+    }
+
+    private static class PositionAdapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            if (position.isValid()) {
+                out.value(Fen.square(ChessBoard.square(position)));
+            } else {
+                out.beginObject().name("row").value(position.getRow()).name("col").value(position.getColumn()).endObject();
+            }
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                return readPosition(in.nextString());
+            }
+            var row = 0;
+            var col = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "col" -> col = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessPosition(row, col);
+        }
+    }
+
+    private static ChessPosition readPosition(String square) {
+        if (square.length() != 2 || square.charAt(0) < 'a' || square.charAt(0) > 'h'
+                || square.charAt(1) < '1' || square.charAt(1) > '8') {
+            throw new JsonParseException("Invalid square: " + square);
+        }
+        return ChessPosition.of(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    private static ChessMove readMove(String notation) {
+        try {
+            return ChessMove.parse(notation);
+        } catch (IllegalArgumentException ex) {
+            throw new JsonParseException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Reads a game in any of its JSON forms.
+     *
+     * @throws JsonParseException if the element is not a game.
+     */
+    static ChessGame readGame(JsonElement element) {
+        if (!element.isJsonObject()) {
+            throw new JsonParseException("Game must be an object");
+        }
+        var root = element.getAsJsonObject();
+        if (root.has("fen")) {
+            ChessGame game;
+            try {
+                game = Fen.parse(root.get("fen").getAsString());
+            } catch (IllegalArgumentException ex) {
+                throw new JsonParseException(ex.getMessage());
+            }
+            var board = game.getBoard();
+            var moves = root.getAsJsonArray("moves");
+            if (moves != null) {
+                for (var move : moves) {
+                    board.appendHistory(PackedMove.encode(readMove(move.getAsString())));
+                }
+            }
+            var repetitions = root.getAsJsonArray("repetitions");
+            if (repetitions == null) {
+                board.restoreDerivedState();
+            } else {
+                var keys = new long[repetitions.size()];
+                for (var i = 0; i < keys.length; i++) {
+                    keys[i] = repetitions.get(i).getAsLong();
+                }
+                board.restoreState(keys);
+            }
+            return game;
+        }
+
+        var board = root.getAsJsonObject("board");
+        if (board != null && board.has("squares")) {
+            return readSquares(root, board);
+        }
+        var game = REFLECTIVE.fromJson(root, ChessGame.class);
+        if (game.getBoard() != null) {
+            game.getBoard().appendHistory(readHistory(board));
+            game.getBoard().restoreDerivedState();
+        }
+        return game;
+    }
+
+    /**
+     * Reads a game in the form first stored, which kept neither castling rights, the en passant
+     * square nor the halfmove clock. The game is rebuilt by replaying its history, which recovers
+     * them. If the history does not lead to its squares, the pieces are placed as stored and
+     * castling rights are kept for kings and rooks that have not moved.
+     */
+    private static ChessGame readSquares(JsonObject root, JsonObject board) {
+        var squares = new ChessBoard();
+        var rows = board.getAsJsonArray("squares");
+        for (var row = 0; row < rows.size(); row++) {
+            var columns = rows.get(row).getAsJsonArray();
+            for (var col = 0; col < columns.size(); col++) {
+                if (!columns.get(col).isJsonNull()) {
+                    var piece = columns.get(col).getAsJsonObject();
+                    squares.addPiece(ChessPosition.of(row + 1, col + 1), ChessPiece.of(
+                            ChessGame.TeamColor.valueOf(piece.get("color").getAsString()),
+                            ChessPiece.PieceType.valueOf(piece.get("type").getAsString())));
+                }
+            }
+        }
+        var legacy = REFLECTIVE.fromJson(root, ChessGame.class);
+        var history = readHistory(board);
+
+        var replay = new ChessBoard();
+        replay.resetBoard();
+        for (var move : history) {
+            replay.movePiece(move);
+        }
+        var game = new ChessGame();
+        game.setTeamTurn(legacy.getTeamTurn());
+        if (replay.equals(squares)) {
+            game.setBoard(replay);
+            return game;
+        }
+
+        squares.appendHistory(history);
+        var rights = 0;
+        for (var color : COLORS) {
+            var row = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+            var shift = color == ChessGame.TeamColor.WHITE ? 0 : 2;
+            if (isUnmoved(squares, ChessPosition.of(row, 5), ChessPiece.of(color, ChessPiece.PieceType.KING))) {
+                if (isUnmoved(squares, ChessPosition.of(row, 8), ChessPiece.of(color, ChessPiece.PieceType.ROOK))) {
+                    rights |= ChessBoard.WHITE_KINGSIDE << shift;
+                }
+                if (isUnmoved(squares, ChessPosition.of(row, 1), ChessPiece.of(color, ChessPiece.PieceType.ROOK))) {
+                    rights |= ChessBoard.WHITE_QUEENSIDE << shift;
+                }
+            }
+        }
+        squares.setCastlingRights(rights);
+        squares.restoreDerivedState();
+        game.setBoard(squares);
+        return game;
+    }
+
+    /**
+     * Reads the history of a board in a reflective form, where moves are objects. The board no
+     * longer keeps its history in a form Gson reads.
+     */
+    private static List<ChessMove> readHistory(JsonObject board) {
+        var moves = new ArrayList<ChessMove>();
+        var history = board == null ? null : board.getAsJsonArray("history");
+        if (history != null) {
+            for (var move : history) {
+                moves.add(GSON.fromJson(move, ChessMove.class));
+            }
+        }
+        return moves;
+    }
+
+    private static boolean isUnmoved(ChessBoard board, ChessPosition position, ChessPiece piece) {
+        return piece.equals(board.getPiece(position)) && board.isOriginalPosition(position);
+    }
+}
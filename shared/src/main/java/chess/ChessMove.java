@@ -16,36 +16,80 @@ public class ChessMove {
 
     public ChessMove(ChessPosition start, ChessPosition end,
                      ChessPiece.PieceType promotionPiece) {
-        this.start = new ChessPosition(start.getRow(), start.getColumn());
-        this.end = new ChessPosition(end.getRow(), end.getColumn());
+        this.start = ChessPosition.of(start.getRow(), start.getColumn());
+        this.end = ChessPosition.of(end.getRow(), end.getColumn());
         this.promotionPiece = promotionPiece;
     }
 
 
+    /**
+     * Reads a move in coordinate notation, as {@link #parse} does.
+     *
+     * @throws Exception if the notation is not a move.
+     */
     public ChessMove(String notation) throws Exception {
+        ChessMove move;
+        try {
+            move = parse(notation);
+        } catch (IllegalArgumentException ex) {
+            throw new Exception(ex.getMessage(), ex);
+        }
+        start = move.start;
+        end = move.end;
+        promotionPiece = move.promotionPiece;
+    }
+
+    /**
+     * Reads a move in coordinate notation, such as "e2e4" or "e7e8q", in either case.
+     *
+     * @return the shared instance for the move.
+     * @throws IllegalArgumentException if the notation is not a move.
+     */
+    public static ChessMove parse(String notation) {
         notation = notation.toLowerCase(Locale.ROOT);
-        if (notation.length() >= 4) {
-            int colStart = notation.charAt(0) - 'a' + 1;
-            int rowStart = notation.charAt(1) - '1' + 1;
-            int colEnd = notation.charAt(2) - 'a' + 1;
-            int rowEnd = notation.charAt(3) - '1' + 1;
-
-            start = new ChessPosition(rowStart, colStart);
-            end = new ChessPosition(rowEnd, colEnd);
-            if (notation.length() == 5) {
-                promotionPiece = switch (notation.charAt(4)) {
-                    case 'q' -> ChessPiece.PieceType.QUEEN;
-                    case 'b' -> ChessPiece.PieceType.BISHOP;
-                    case 'n' -> ChessPiece.PieceType.KNIGHT;
-                    case 'r' -> ChessPiece.PieceType.ROOK;
-                    default -> null;
-                };
-            } else {
-                promotionPiece = null;
-            }
-            return;
+        if (notation.length() != 4 && notation.length() != 5) {
+            throw new IllegalArgumentException("Invalid move: " + notation);
+        }
+        ChessPiece.PieceType promotion = null;
+        if (notation.length() == 5) {
+            promotion = switch (notation.charAt(4)) {
+                case 'q' -> ChessPiece.PieceType.QUEEN;
+                case 'r' -> ChessPiece.PieceType.ROOK;
+                case 'b' -> ChessPiece.PieceType.BISHOP;
+                case 'n' -> ChessPiece.PieceType.KNIGHT;
+                default -> throw new IllegalArgumentException("Invalid move: " + notation);
+            };
+        }
+        var from = square(notation, 0);
+        var to = square(notation, 2);
+        return PackedMove.toChessMove(PackedMove.encode(from, to, promotion, 0));
+    }
+
+    private static int square(String notation, int index) {
+        var file = notation.charAt(index) - 'a';
+        var rank = notation.charAt(index + 1) - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            throw new IllegalArgumentException("Invalid move: " + notation);
+        }
+        return rank * 8 + file;
+    }
+
+    /**
+     * @return the move in coordinate notation, such as "e2e4" or "e7e8q".
+     */
+    public String notation() {
+        var sb = new StringBuilder()
+                .append(Fen.square(ChessBoard.square(start)))
+                .append(Fen.square(ChessBoard.square(end)));
+        if (promotionPiece != null) {
+            sb.append(switch (promotionPiece) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                default -> 'n';
+            });
         }
-        throw new Exception("Invalid notation");
+        return sb.toString();
     }
 
     /**
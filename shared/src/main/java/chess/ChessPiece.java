@@ -15,6 +15,15 @@ import static chess.ChessGame.*;
  * signature of the existing methods.
  */
 public class ChessPiece {
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (var color : TeamColor.values()) {
+            for (var type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
 
     private final TeamColor color;
     private final PieceType type;
@@ -24,6 +33,13 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * @return the shared instance for the piece.
+     */
+    public static ChessPiece of(TeamColor color, PieceType type) {
+        return PIECES[color.ordinal() * 6 + type.ordinal()];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -9,6 +9,14 @@ import java.util.Locale;
  * signature of the existing methods.
  */
 public class ChessPosition {
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (var square = 0; square < POSITIONS.length; square++) {
+            POSITIONS[square] = new ChessPosition((square >>> 3) + 1, (square & 7) + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,6 +26,30 @@ public class ChessPosition {
     }
 
 
+    /**
+     * @return the shared instance for the position. Positions off the board are not cached.
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return POSITIONS[((row - 1) << 3) + (col - 1)];
+    }
+
+    /**
+     * @return the shared instance for a bitboard square, where a1 is 0 and h8 is 63.
+     */
+    public static ChessPosition of(int square) {
+        return POSITIONS[square];
+    }
+
+    /**
+     * @return true if the position is on the board
+     */
+    public boolean isValid() {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
     public ChessPosition(String notation) throws Exception {
         notation = notation.toLowerCase(Locale.ROOT);
         if (notation.length() == 2) {
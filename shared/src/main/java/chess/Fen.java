@@ -0,0 +1,215 @@
+package chess;
+
+import chess.rules.Attacks;
+
+import java.util.Map;
+
+/**
+ * Reads and writes games in Forsyth-Edwards Notation.
+ */
+public class Fen {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final Map<Character, ChessPiece.PieceType> TYPES = Map.of(
+            'p', ChessPiece.PieceType.PAWN,
+            'n', ChessPiece.PieceType.KNIGHT,
+            'b', ChessPiece.PieceType.BISHOP,
+            'r', ChessPiece.PieceType.ROOK,
+            'q', ChessPiece.PieceType.QUEEN,
+            'k', ChessPiece.PieceType.KING);
+
+    private static final String CASTLING = "KQkq";
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    /**
+     * Creates a game from a FEN string. The move counters are optional.
+     *
+     * @throws IllegalArgumentException if the string is not valid FEN.
+     */
+    public static ChessGame parse(String fen) {
+        var fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        var board = new ChessBoard();
+        var rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        for (var i = 0; i < 8; i++) {
+            var row = 8 - i;
+            var column = 1;
+            for (var c : rows[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    column += c - '0';
+                } else {
+                    var type = TYPES.get(Character.toLowerCase(c));
+                    if (type == null || column > 8) {
+                        throw new IllegalArgumentException("Invalid FEN: " + fen);
+                    }
+                    var color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                    board.addPiece(ChessPosition.of(row, column++), ChessPiece.of(color, type));
+                }
+            }
+            if (column != 9) {
+                throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+
+        var turn = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Invalid FEN: " + fen);
+        };
+
+        var rights = 0;
+        if (!fields[2].equals("-")) {
+            for (var c : fields[2].toCharArray()) {
+                var right = CASTLING.indexOf(c);
+                if (right < 0) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                rights |= 1 << right;
+            }
+        }
+        board.setCastlingRights(rights);
+
+        if (!fields[3].equals("-")) {
+            try {
+                var target = ChessBoard.square(new ChessPosition(fields[3]));
+                var capturers = board.pieces(turn, ChessPiece.PieceType.PAWN) & Attacks.pawn(turn.opponent(), target);
+                // Only record the square when a capture is actually possible, as the board does.
+                if (capturers != 0) {
+                    board.setEnPassantSquare(target);
+                }
+            } catch (Exception ex) {
+                throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+
+        if (fields.length > 4) {
+            try {
+                board.setHalfmoveClock(Integer.parseInt(fields[4]));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+
+        var game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    /**
+     * @return the FEN string for the game's current position.
+     */
+    public static String format(ChessGame game) {
+        var board = game.getBoard();
+        return format(board::pieces, game.getTeamTurn(), board.castlingRights(), board.enPassantSquare(),
+                board.halfmoveClock(), board.getHistory().size());
+    }
+
+    /**
+     * @return the FEN string for the version's position.
+     */
+    public static String format(GameSnapshot version) {
+        return format(version::pieces, version.getTeamTurn(), version.castlingRights(), version.enPassantSquare(),
+                version.halfmoveClock(), version.ply());
+    }
+
+    /**
+     * The bitboard of a color's pieces of a type, read from a board or a version of a game.
+     */
+    private interface Pieces {
+        long of(ChessGame.TeamColor color, ChessPiece.PieceType type);
+    }
+
+    private static String format(Pieces pieces, ChessGame.TeamColor turn, int castlingRights, int enPassantSquare,
+                                 int halfmoveClock, int ply) {
+        var sb = new StringBuilder();
+        for (var row = 8; row >= 1; row--) {
+            var empty = 0;
+            for (var column = 1; column <= 8; column++) {
+                var piece = pieceAt(pieces, ChessBoard.square(row, column));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                var c = switch (piece.getPieceType()) {
+                    case PAWN -> 'p';
+                    case KNIGHT -> 'n';
+                    case BISHOP -> 'b';
+                    case ROOK -> 'r';
+                    case QUEEN -> 'q';
+                    case KING -> 'k';
+                };
+                sb.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row > 1) {
+                sb.append('/');
+            }
+        }
+
+        sb.append(turn == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        var rights = castlingRights & castlingPossible(pieces);
+        if (rights == 0) {
+            sb.append('-');
+        }
+        for (var i = 0; i < CASTLING.length(); i++) {
+            if ((rights & (1 << i)) != 0) {
+                sb.append(CASTLING.charAt(i));
+            }
+        }
+
+        sb.append(' ').append(enPassantSquare < 0 ? "-" : square(enPassantSquare));
+        sb.append(' ').append(halfmoveClock).append(' ').append(ply / 2 + 1);
+        return sb.toString();
+    }
+
+    private static ChessPiece pieceAt(Pieces pieces, int square) {
+        for (var color : COLORS) {
+            for (var type : PIECE_TYPES) {
+                if ((pieces.of(color, type) & (1L << square)) != 0) {
+                    return ChessPiece.of(color, type);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the castling rights whose king and rook are still on their original squares.
+     */
+    private static int castlingPossible(Pieces pieces) {
+        var possible = 0;
+        var corners = new int[]{ChessBoard.square(1, 8), ChessBoard.square(1, 1), ChessBoard.square(8, 8), ChessBoard.square(8, 1)};
+        for (var i = 0; i < corners.length; i++) {
+            var color = i < 2 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            var king = ChessBoard.square(i < 2 ? 1 : 8, 5);
+            if ((pieces.of(color, ChessPiece.PieceType.KING) & (1L << king)) != 0
+                    && (pieces.of(color, ChessPiece.PieceType.ROOK) & (1L << corners[i])) != 0) {
+                possible |= 1 << i;
+            }
+        }
+        return possible;
+    }
+
+    /**
+     * @return the algebraic name of a bitboard square, such as "e4".
+     */
+    public static String square(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >>> 3));
+    }
+}
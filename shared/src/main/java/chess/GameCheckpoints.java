@@ -0,0 +1,107 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Versions of a game kept every few plies, so the position after any number of moves is rebuilt
+ * by replaying fewer than {@code interval} moves from the nearest checkpoint rather than the
+ * whole history. Checkpoints are immutable, so they can be shared between copies of a game and
+ * extended as it goes on.
+ */
+public final class GameCheckpoints {
+    public static final int DEFAULT_INTERVAL = 16;
+
+    private final int interval;
+    private final List<ChessMove> history;
+    private final GameSnapshot[] checkpoints;
+
+    private GameCheckpoints(int interval, List<ChessMove> history, GameSnapshot[] checkpoints) {
+        this.interval = interval;
+        this.history = history;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Replays the history of a version of a game from the standard starting position, keeping
+     * a checkpoint every interval plies.
+     *
+     * @throws IllegalArgumentException if the history does not lead to the version's position.
+     */
+    public static GameCheckpoints of(GameSnapshot version, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        var start = new ChessBoard();
+        start.resetBoard();
+        return build(version, interval, new GameSnapshot[]{GameSnapshot.of(start, ChessGame.TeamColor.WHITE, List.of())});
+    }
+
+    /**
+     * @return checkpoints for the version, reusing these if it continues their history.
+     * @throws IllegalArgumentException if the history does not lead to the version's position.
+     */
+    public GameCheckpoints extend(GameSnapshot version) {
+        if (version.ply() < history.size() || !version.history().subList(0, history.size()).equals(history)) {
+            return of(version, interval);
+        }
+        if (version.ply() == history.size()) {
+            return this;
+        }
+        return build(version, interval, checkpoints);
+    }
+
+    private static GameCheckpoints build(GameSnapshot version, int interval, GameSnapshot[] kept) {
+        var history = version.history();
+        var checkpoints = Arrays.copyOf(kept, history.size() / interval + 1);
+        var replay = kept[kept.length - 1].toGame();
+        var board = replay.getBoard();
+        var turn = replay.getTeamTurn();
+        for (var ply = board.getHistory().size(); ply < history.size(); ply++) {
+            board.movePiece(history.get(ply));
+            turn = turn.opponent();
+            if ((ply + 1) % interval == 0) {
+                checkpoints[(ply + 1) / interval] = GameSnapshot.of(board, turn, history.subList(0, ply + 1));
+            }
+        }
+        if (Zobrist.position(board, turn) != version.positionKey()) {
+            throw new IllegalArgumentException("History does not lead from the starting position to the game's position");
+        }
+        return new GameCheckpoints(interval, history, checkpoints);
+    }
+
+    /**
+     * @return a new game in the position after the given number of moves.
+     * @throws IllegalArgumentException if the ply is outside the history.
+     */
+    public ChessGame at(int ply) {
+        if (ply < 0 || ply > history.size()) {
+            throw new IllegalArgumentException(String.format("ply must be between 0 and %d", history.size()));
+        }
+        var game = checkpoints[ply / interval].toGame();
+        var board = game.getBoard();
+        for (var i = board.getHistory().size(); i < ply; i++) {
+            board.movePiece(history.get(i));
+            game.setTeamTurn(game.getTeamTurn().opponent());
+        }
+        return game;
+    }
+
+    /**
+     * @return the number of moves covered.
+     */
+    public int ply() {
+        return history.size();
+    }
+
+    /**
+     * @return the number of checkpoints kept.
+     */
+    public int size() {
+        return checkpoints.length;
+    }
+
+    public int interval() {
+        return interval;
+    }
+}
@@ -0,0 +1,153 @@
+package chess;
+
+import com.google.gson.JsonParser;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A compact binary form of a {@link ChessGame} for storage. Version 2 is laid out as:
+ * <pre>
+ * byte      MAGIC
+ * byte      VERSION
+ * byte      team to move (bit 4) and castling rights (bits 0-3)
+ * byte      en passant square, or -1
+ * short     halfmove clock
+ * long      occupied squares
+ * nibbles   the piece index on each occupied square, from a1 up, two to a byte
+ * short     number of moves
+ * short[]   each move of the history, packed as in {@link PackedMove} without flags
+ * byte      number of positions since the last capture or pawn move
+ * long[]    the repetition key of each of those positions, oldest first
+ * </pre>
+ * The starting position takes 33 bytes, each move two more, and each reversible move since the
+ * last capture or pawn move eight more, so that decoding need not replay the history to count
+ * repetitions. Version 1 stopped after the history and is still read, by replaying it.
+ * <p>
+ * Games stored before this form are JSON text in one of the forms {@link ChessJson} reads, so
+ * {@link #decode} accepts those too and stored games can be converted as they are read.
+ */
+public class GameCodec {
+    public static final byte MAGIC = (byte) 0xC6;
+    public static final byte VERSION = 2;
+
+    private static final int BLACK_TO_MOVE = 1 << 4;
+    private static final int HEADER_SIZE = 14;
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    public static byte[] encode(ChessGame game) {
+        var board = game.getBoard();
+        var occupied = board.occupied();
+        var count = Long.bitCount(occupied);
+        var history = board.getHistory();
+        var repetitions = board.repetitionKeys();
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + (count + 1) / 2 + 2 + history.size() * 2 + 1 + repetitions.length * 8);
+
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) (board.castlingRights() | (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0)));
+        buffer.put((byte) board.enPassantSquare());
+        buffer.putShort((short) board.halfmoveClock());
+        buffer.putLong(occupied);
+        var pending = -1;
+        for (var bits = occupied; bits != 0; bits &= bits - 1) {
+            var index = board.pieceIndexAt(Long.numberOfTrailingZeros(bits));
+            if (pending < 0) {
+                pending = index;
+            } else {
+                buffer.put((byte) (pending | index << 4));
+                pending = -1;
+            }
+        }
+        if (pending >= 0) {
+            buffer.put((byte) pending);
+        }
+
+        buffer.putShort((short) history.size());
+        for (var move : history) {
+            buffer.putShort((short) PackedMove.encode(move));
+        }
+        buffer.put((byte) repetitions.length);
+        for (var key : repetitions) {
+            buffer.putLong(key);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return true if the bytes are in the binary form rather than JSON text.
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    /**
+     * Reads a game in the binary form or in any JSON form.
+     *
+     * @throws IllegalArgumentException if the data is not a game.
+     */
+    public static ChessGame decode(byte[] data) {
+        if (!isEncoded(data)) {
+            try {
+                return ChessJson.readGame(JsonParser.parseString(new String(data, StandardCharsets.UTF_8)));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Game is not valid JSON", ex);
+            }
+        }
+        try {
+            var buffer = ByteBuffer.wrap(data);
+            buffer.get();
+            var version = buffer.get();
+            if (version != 1 && version != VERSION) {
+                throw new IllegalArgumentException("Unsupported game version " + version);
+            }
+            var state = buffer.get();
+            var enPassant = buffer.get();
+            var halfmoveClock = buffer.getShort();
+            var occupied = buffer.getLong();
+
+            var board = new ChessBoard();
+            var packed = 0;
+            var odd = false;
+            for (var bits = occupied; bits != 0; bits &= bits - 1) {
+                if (!odd) {
+                    packed = buffer.get();
+                }
+                var index = odd ? (packed >>> 4) & 0xF : packed & 0xF;
+                odd = !odd;
+                if (index >= COLORS.length * TYPES.length) {
+                    throw new IllegalArgumentException("Bad piece index " + index);
+                }
+                board.addPiece(ChessBoard.position(Long.numberOfTrailingZeros(bits)),
+                        ChessPiece.of(COLORS[index / TYPES.length], TYPES[index % TYPES.length]));
+            }
+            board.setCastlingRights(state & ChessBoard.ALL_CASTLING);
+            board.setEnPassantSquare(enPassant);
+            board.setHalfmoveClock(halfmoveClock);
+
+            var moves = buffer.getShort() & 0xFFFF;
+            for (var i = 0; i < moves; i++) {
+                board.appendHistory(buffer.getShort());
+            }
+            if (version == 1) {
+                board.restoreDerivedState();
+            } else {
+                var repetitions = new long[buffer.get() & 0xFF];
+                for (var i = 0; i < repetitions.length; i++) {
+                    repetitions[i] = buffer.getLong();
+                }
+                board.restoreState(repetitions);
+            }
+
+            var game = new ChessGame();
+            game.setBoard(board);
+            game.setTeamTurn((state & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+            return game;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated game");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable version of a game's position. Each move made through {@link ChessGame} adds a
+ * version that holds the new position and points back to the version before it, so a move
+ * costs one small fixed-size object however long the game is, and older versions stay valid.
+ * Readers on other threads can hold a version while the game moves on, without locks or copies.
+ * <p>
+ * The first version of a chain also holds the moves made before it, such as those of a game
+ * that was just loaded, and the positions since the last capture or pawn move, which later
+ * versions find by walking back the chain.
+ */
+public final class GameSnapshot {
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private final long[] pieces;
+    private final ChessGame.TeamColor turn;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final long positionKey;
+    private final int ply;
+    private final GameSnapshot previous;
+    private final ChessMove move;
+    private final List<ChessMove> earlierMoves;
+    private final long[] earlierRepetitions;
+
+    private GameSnapshot(ChessBoard board, ChessGame.TeamColor turn, GameSnapshot previous, ChessMove move,
+                         List<ChessMove> earlierMoves, long[] earlierRepetitions) {
+        this.pieces = new long[COLORS.length * TYPES.length];
+        for (var color : COLORS) {
+            for (var type : TYPES) {
+                pieces[ChessBoard.pieceIndex(color, type)] = board.pieces(color, type);
+            }
+        }
+        this.turn = turn;
+        this.castlingRights = board.castlingRights();
+        this.enPassantSquare = board.enPassantSquare();
+        this.halfmoveClock = board.halfmoveClock();
+        this.positionKey = Zobrist.position(board, turn);
+        this.ply = board.getHistory().size();
+        this.previous = previous;
+        this.move = move;
+        this.earlierMoves = earlierMoves;
+        this.earlierRepetitions = earlierRepetitions;
+    }
+
+    /**
+     * @return the first version of a chain, holding the board's history so far.
+     */
+    static GameSnapshot of(ChessBoard board, ChessGame.TeamColor turn) {
+        return of(board, turn, List.copyOf(board.getHistory()));
+    }
+
+    /**
+     * @param earlierMoves the board's history, which must not change afterwards.
+     */
+    static GameSnapshot of(ChessBoard board, ChessGame.TeamColor turn, List<ChessMove> earlierMoves) {
+        return new GameSnapshot(board, turn, null, null, earlierMoves, board.repetitionKeys());
+    }
+
+    /**
+     * @return the version after the move, which has already been made on the board.
+     */
+    GameSnapshot next(ChessBoard board, ChessGame.TeamColor turn, ChessMove move) {
+        return new GameSnapshot(board, turn, this, move, null, null);
+    }
+
+    /**
+     * @return true if the version holds the board's current position and history length.
+     */
+    boolean matches(ChessBoard board, ChessGame.TeamColor turn) {
+        return ply == board.getHistory().size() && halfmoveClock == board.halfmoveClock()
+                && positionKey == Zobrist.position(board, turn);
+    }
+
+    public ChessPiece getPiece(ChessPosition position) {
+        var bit = 1L << ChessBoard.square(position);
+        for (var index = 0; index < pieces.length; index++) {
+            if ((pieces[index] & bit) != 0) {
+                return ChessPiece.of(COLORS[index / TYPES.length], TYPES[index % TYPES.length]);
+            }
+        }
+        return null;
+    }
+
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[ChessBoard.pieceIndex(color, type)];
+    }
+
+    int castlingRights() {
+        return castlingRights;
+    }
+
+    int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return turn;
+    }
+
+    public long positionKey() {
+        return positionKey;
+    }
+
+    /**
+     * @return the number of moves made in the game to reach this version.
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * @return the move that led to this version, or null if the chain starts here.
+     */
+    public ChessMove lastMove() {
+        return move;
+    }
+
+    /**
+     * @return the version before the last move, or null if the chain starts here.
+     */
+    public GameSnapshot previous() {
+        return previous;
+    }
+
+    /**
+     * @return the version after the given number of moves, or null if the chain starts later.
+     * @throws IllegalArgumentException if the ply is after this version.
+     */
+    public GameSnapshot at(int ply) {
+        if (ply > this.ply) {
+            throw new IllegalArgumentException(String.format("ply %d is after %d", ply, this.ply));
+        }
+        var version = this;
+        while (version != null && version.ply > ply) {
+            version = version.previous;
+        }
+        return version;
+    }
+
+    /**
+     * @return every move made in the game to reach this version.
+     */
+    public List<ChessMove> history() {
+        var moves = new ChessMove[ply];
+        var version = this;
+        while (version.previous != null) {
+            moves[version.ply - 1] = version.move;
+            version = version.previous;
+        }
+        for (var i = 0; i < version.earlierMoves.size(); i++) {
+            moves[i] = version.earlierMoves.get(i);
+        }
+        return List.of(moves);
+    }
+
+    /**
+     * @return the keys of the positions left since the last capture or pawn move, oldest first,
+     * as {@link ChessBoard#repetitionKeys()} gives them. Only the versions in that window are
+     * visited, however long the game is.
+     */
+    long[] repetitionKeys() {
+        var keys = new long[Math.min(halfmoveClock, Repetitions.SIZE)];
+        var remaining = keys.length;
+        var version = this;
+        while (remaining > 0 && version.previous != null) {
+            version = version.previous;
+            var key = version.positionKey;
+            keys[--remaining] = version.turn == ChessGame.TeamColor.BLACK ? key ^ Zobrist.blackToMove() : key;
+        }
+        if (remaining == 0) {
+            return keys;
+        }
+        var earlier = version.earlierRepetitions;
+        var count = Math.min(remaining, earlier.length);
+        System.arraycopy(earlier, earlier.length - count, keys, remaining - count, count);
+        return Arrays.copyOfRange(keys, remaining - count, keys.length);
+    }
+
+    /**
+     * @return a new game in this version's position, with its history, that continues this chain.
+     * It counts repetitions of earlier positions without replaying the history.
+     */
+    public ChessGame toGame() {
+        var board = new ChessBoard();
+        for (var index = 0; index < pieces.length; index++) {
+            var piece = ChessPiece.of(COLORS[index / TYPES.length], TYPES[index % TYPES.length]);
+            for (var bits = pieces[index]; bits != 0; bits &= bits - 1) {
+                board.addPiece(ChessBoard.position(Long.numberOfTrailingZeros(bits)), piece);
+            }
+        }
+        board.setCastlingRights(castlingRights);
+        board.setEnPassantSquare(enPassantSquare);
+        board.setHalfmoveClock(halfmoveClock);
+        board.appendHistory(history());
+        board.restoreState(repetitionKeys());
+
+        var game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        game.setSnapshot(this);
+        return game;
+    }
+}
@@ -0,0 +1,83 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A growable list of {@link PackedMove packed} moves. Callers keep one list per search ply
+ * and {@link #clear()} it between positions, so generating moves allocates nothing once the
+ * backing array has grown to fit.
+ */
+public class MoveList {
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the index of the move, ignoring flags, or -1 if the list does not hold it.
+     */
+    public int indexOf(int move) {
+        for (var i = 0; i < size; i++) {
+            if (((moves[i] ^ move) & PackedMove.MOVE_MASK) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the list holds the move, ignoring flags.
+     */
+    public boolean contains(int move) {
+        return indexOf(move) >= 0;
+    }
+
+    /**
+     * Adds the shared ChessMove for every packed move to the collection.
+     */
+    public void addTo(Collection<ChessMove> collection) {
+        for (var i = 0; i < size; i++) {
+            collection.add(PackedMove.toChessMove(moves[i]));
+        }
+    }
+}
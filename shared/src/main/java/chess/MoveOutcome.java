@@ -0,0 +1,58 @@
+package chess;
+
+/**
+ * What happened when a move was made, and the state of the game it left behind.
+ *
+ * @param move      the move that was made
+ * @param mover     the team that made the move
+ * @param captured  the piece that was captured, or null
+ * @param status    the state of the game for the team now to move
+ */
+public record MoveOutcome(ChessMove move, ChessGame.TeamColor mover, ChessPiece captured, Status status) {
+    public enum Status {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        /** Neither team can checkmate. */
+        INSUFFICIENT_MATERIAL,
+        /** The position has occurred three times. */
+        REPETITION,
+        /** Fifty moves by each team without a capture or pawn move. */
+        FIFTY_MOVES
+    }
+
+    public boolean isCapture() {
+        return captured != null;
+    }
+
+    public boolean isPromotion() {
+        return move.getPromotionPiece() != null;
+    }
+
+    /**
+     * @return true if the opponent's king is attacked, including when it is checkmated.
+     */
+    public boolean isCheck() {
+        return status == Status.CHECK || status == Status.CHECKMATE;
+    }
+
+    public boolean isCheckmate() {
+        return status == Status.CHECKMATE;
+    }
+
+    public boolean isStalemate() {
+        return status == Status.STALEMATE;
+    }
+
+    /**
+     * @return true for stalemate and the other drawn endings.
+     */
+    public boolean isDraw() {
+        return status != Status.NORMAL && status != Status.CHECK && status != Status.CHECKMATE;
+    }
+
+    public boolean isGameOver() {
+        return status == Status.CHECKMATE || isDraw();
+    }
+}
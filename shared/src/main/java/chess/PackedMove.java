@@ -0,0 +1,71 @@
+package chess;
+
+/**
+ * Encodes a move in a single int so that move lists and search code can work without
+ * allocating. The layout is:
+ * <pre>
+ * bits 0-5   from square (a1 = 0, h8 = 63)
+ * bits 6-11  to square
+ * bits 12-14 promotion piece type ordinal + 1, or 0 for none
+ * bits 15-18 flags: CAPTURE, DOUBLE_PUSH, EN_PASSANT, CASTLE
+ * </pre>
+ * The low 15 bits identify the move; the flags only describe it.
+ */
+public class PackedMove {
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE = 1 << 18;
+
+    public static final int MOVE_MASK = (1 << 15) - 1;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    // Filled lazily. ChessMove is immutable, so a racing fill at worst creates an equal duplicate.
+    private static final ChessMove[] MOVES = new ChessMove[MOVE_MASK + 1];
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        var promotionCode = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionCode << 12) | flags;
+    }
+
+    /**
+     * @return the packed form of the move, without flags.
+     */
+    public static int encode(ChessMove move) {
+        return encode(ChessBoard.square(move.getStartPosition()), ChessBoard.square(move.getEndPosition()), move.getPromotionPiece(), 0);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move is not a promotion.
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        var code = (move >>> 12) & 0x7;
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return the shared ChessMove instance for the packed move. Flags are not part of ChessMove.
+     */
+    public static ChessMove toChessMove(int move) {
+        var index = move & MOVE_MASK;
+        var result = MOVES[index];
+        if (result == null) {
+            result = new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+            MOVES[index] = result;
+        }
+        return result;
+    }
+}
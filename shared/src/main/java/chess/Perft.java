@@ -0,0 +1,196 @@
+package chess;
+
+import chess.rules.MoveGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. Comparing the counts against
+ * published reference values is the standard way to prove a move generator correct, and the
+ * nodes per second it reports measures move generation speed.
+ * <p>
+ * Usage: {@code Perft [--parallel] [--divide] [depth] [fen]}. Without a FEN the reference
+ * suite is run and each result is checked against its known count.
+ */
+public class Perft {
+
+    /**
+     * A position with its published perft counts, starting at depth 1.
+     */
+    public record Reference(String name, String fen, long... counts) {
+    }
+
+    public static final List<Reference> REFERENCES = List.of(
+            new Reference("start", Fen.START,
+                    20, 400, 8902, 197281, 4865609, 119060324),
+            new Reference("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2039, 97862, 4085603, 193690690),
+            new Reference("position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2812, 43238, 674624, 11030083),
+            new Reference("position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6, 264, 9467, 422333, 15833292),
+            new Reference("position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44, 1486, 62379, 2103487, 89941194),
+            new Reference("position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2079, 89890, 3894594, 164075551)
+    );
+
+    /**
+     * Counts the leaf nodes below the game's current position on a single thread.
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(new ChessBoard(game.getBoard()), game.getTeamTurn(), depth);
+    }
+
+    /**
+     * Counts the leaf nodes by searching the root moves in parallel on the pool.
+     */
+    public static long parallelPerft(ChessGame game, int depth, ForkJoinPool pool) {
+        if (depth <= 1) {
+            return perft(game, depth);
+        }
+        return pool.invoke(new PerftTask(new ChessBoard(game.getBoard()), game.getTeamTurn(), depth));
+    }
+
+    /**
+     * Counts the leaf nodes below each root move, keyed by the move in coordinate notation.
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        var board = new ChessBoard(game.getBoard());
+        var turn = game.getTeamTurn();
+        var result = new TreeMap<String, Long>();
+        var moveLists = moveLists(depth - 1);
+        for (var move : legalMoves(board, turn)) {
+            board.makeMove(move);
+            result.put(move.notation(), depth <= 1 ? 1 : perft(board, turn.opponent(), depth - 1, moveLists));
+            board.unmakeMove();
+        }
+        return result;
+    }
+
+    static long perft(ChessBoard board, ChessGame.TeamColor turn, int depth) {
+        return perft(board, turn, depth, moveLists(depth));
+    }
+
+    /**
+     * @param moveLists one list for each remaining depth, reused by every node at that depth so
+     *                  the count allocates nothing as it goes.
+     */
+    private static long perft(ChessBoard board, ChessGame.TeamColor turn, int depth, MoveList[] moveLists) {
+        if (depth == 0) {
+            return 1;
+        }
+        var moves = moveLists[depth - 1];
+        moves.clear();
+        MoveGenerator.legalMoves(board, turn, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (var i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += perft(board, turn.opponent(), depth - 1, moveLists);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static MoveList[] moveLists(int depth) {
+        var moveLists = new MoveList[Math.max(depth, 0)];
+        for (var i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return moveLists;
+    }
+
+    private static List<ChessMove> legalMoves(ChessBoard board, ChessGame.TeamColor turn) {
+        var moves = new ArrayList<ChessMove>();
+        MoveGenerator.legalMoves(board, turn, moves);
+        return moves;
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+        private final ChessBoard board;
+        private final ChessGame.TeamColor turn;
+        private final int depth;
+
+        PerftTask(ChessBoard board, ChessGame.TeamColor turn, int depth) {
+            this.board = board;
+            this.turn = turn;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            // Near the leaves a plain recursive count, with this task's own move lists, is cheaper than forking more tasks.
+            if (depth <= 3) {
+                return perft(board, turn, depth);
+            }
+            var tasks = new ArrayList<PerftTask>();
+            for (var move : legalMoves(board, turn)) {
+                var child = new ChessBoard(board);
+                child.movePiece(move);
+                tasks.add(new PerftTask(child, turn.opponent(), depth - 1));
+            }
+            long nodes = 0;
+            for (var task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        var parallel = false;
+        var divide = false;
+        var depth = 5;
+        String fen = null;
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--parallel" -> parallel = true;
+                case "--divide" -> divide = true;
+                default -> {
+                    if (args[i].matches("\\d+")) {
+                        depth = Integer.parseInt(args[i]);
+                    } else {
+                        fen = String.join(" ", List.of(args).subList(i, args.length));
+                        i = args.length;
+                    }
+                }
+            }
+        }
+
+        var references = fen == null ? REFERENCES : List.of(new Reference("custom", fen));
+        var pool = ForkJoinPool.commonPool();
+        var failures = 0;
+        for (var reference : references) {
+            var game = Fen.parse(reference.fen());
+            var searchDepth = fen == null ? Math.min(depth, reference.counts().length) : depth;
+
+            if (divide) {
+                divide(game, searchDepth).forEach((move, count) -> System.out.printf("%s: %d%n", move, count));
+            }
+
+            var start = System.nanoTime();
+            var nodes = parallel ? parallelPerft(game, searchDepth, pool) : perft(game, searchDepth);
+            var seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+
+            var status = "";
+            if (searchDepth <= reference.counts().length && searchDepth > 0) {
+                var expected = reference.counts()[searchDepth - 1];
+                status = nodes == expected ? " OK" : " FAILED (expected " + expected + ")";
+                failures += nodes == expected ? 0 : 1;
+            }
+            System.out.printf("%-10s depth %d: %,d nodes in %.3fs, %,.0f nodes/sec%s%n",
+                    reference.name(), searchDepth, nodes, seconds, nodes / seconds, status);
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
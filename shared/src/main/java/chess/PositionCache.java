@@ -0,0 +1,177 @@
+package chess;
+
+import chess.rules.MoveGenerator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the legal moves and check status of positions, shared by every game in
+ * the process, so games passing through the same openings generate their moves once. Like
+ * the engine's transposition table it is direct mapped: a position's key picks one slot, and
+ * a new position replaces whatever was there. Entries are immutable, so threads read and
+ * replace them without locking.
+ * <p>
+ * Only what follows from the position key is cached. Repetition and fifty-move draws depend
+ * on the game's history and are read from the board.
+ */
+public class PositionCache {
+    public static final int DEFAULT_ENTRIES = 1 << 16;
+
+    private static final PositionCache SHARED = new PositionCache(Integer.getInteger("chess.positionCache.entries", DEFAULT_ENTRIES));
+
+    /**
+     * The legal moves of a team in a position, and whether the team is in check.
+     */
+    public static final class Entry {
+        private final long key;
+        private final int[] moves;
+        private final boolean check;
+
+        private Entry(long key, int[] moves, boolean check) {
+            this.key = key;
+            this.moves = moves;
+            this.check = check;
+        }
+
+        public int size() {
+            return moves.length;
+        }
+
+        public boolean isEmpty() {
+            return moves.length == 0;
+        }
+
+        /**
+         * @return the packed move at the index.
+         */
+        public int move(int index) {
+            return moves[index];
+        }
+
+        /**
+         * @return the packed legal move matching the move, ignoring flags, or 0 if it is not legal.
+         */
+        public int find(int move) {
+            for (var legal : moves) {
+                if (((legal ^ move) & PackedMove.MOVE_MASK) == 0) {
+                    return legal;
+                }
+            }
+            return 0;
+        }
+
+        public boolean isCheck() {
+            return check;
+        }
+
+        public boolean isCheckmate() {
+            return check && moves.length == 0;
+        }
+
+        public boolean isStalemate() {
+            return !check && moves.length == 0;
+        }
+
+        /**
+         * Adds the shared ChessMove for every legal move from the square to the collection.
+         */
+        public void addTo(Collection<ChessMove> collection, int from) {
+            for (var move : moves) {
+                if (PackedMove.from(move) == from) {
+                    collection.add(PackedMove.toChessMove(move));
+                }
+            }
+        }
+
+        /**
+         * Adds the shared ChessMove for every legal move to the collection.
+         */
+        public void addTo(Collection<ChessMove> collection) {
+            for (var move : moves) {
+                collection.add(PackedMove.toChessMove(move));
+            }
+        }
+    }
+
+    private final Entry[] entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param entries the number of positions held, rounded down to a power of two
+     */
+    public PositionCache(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Cache needs at least one entry");
+        }
+        this.entries = new Entry[Integer.highestOneBit(entries)];
+    }
+
+    /**
+     * @return the cache shared by every game. Its size is read from the
+     * {@code chess.positionCache.entries} system property.
+     */
+    public static PositionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the legal moves and check status of the team in the board's position,
+     * generated if the position is not cached.
+     */
+    public Entry lookup(ChessBoard board, ChessGame.TeamColor color) {
+        var key = Zobrist.position(board, color);
+        var slot = (int) (key ^ (key >>> 32)) & (entries.length - 1);
+        // Entry fields are final, so an entry read without synchronization is fully built.
+        var entry = entries[slot];
+        if (entry != null && entry.key == key) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+
+        var moves = new MoveList();
+        MoveGenerator.legalMoves(board, color, moves);
+        var packed = new int[moves.size()];
+        for (var i = 0; i < packed.length; i++) {
+            packed[i] = moves.get(i);
+        }
+        var king = board.pieces(color, ChessPiece.PieceType.KING);
+        var check = king != 0 && board.isAttacked(Long.numberOfTrailingZeros(king), color.opponent());
+        entry = new Entry(key, packed, check);
+        entries[slot] = entry;
+        return entry;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the share of lookups answered from the cache, or 0 before any lookup.
+     */
+    public double hitRate() {
+        var hits = hits();
+        var total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Forgets every position and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(entries, null);
+        hits.reset();
+        misses.reset();
+    }
+}
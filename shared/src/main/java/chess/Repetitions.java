@@ -0,0 +1,108 @@
+package chess;
+
+/**
+ * The keys of the positions a board has left, kept in a ring so that the number of times
+ * the current position has occurred is found in constant time. Each entry remembers how
+ * often its position had occurred when it was recorded, and a small table indexed by key
+ * points to the latest entry for each key, so a lookup is one table read and one comparison.
+ * Only the most recent {@link #SIZE} positions are kept, which covers the fifty-move window.
+ * <p>
+ * Positions with the other team to move never repeat each other, so the parity of each
+ * entry's index is folded into its key.
+ */
+final class Repetitions {
+    static final int SIZE = 128;
+    private static final int TABLE_SIZE = 256;
+    private static final long ODD_PLY = Zobrist.blackToMove();
+
+    private final long[] keys = new long[SIZE];
+    private final byte[] counts = new byte[SIZE];
+    private final int[] displaced = new int[SIZE];
+    // The index + 1 of the latest entry in each slot, or 0.
+    private final int[] latest = new int[TABLE_SIZE];
+    private int size;
+
+    Repetitions() {
+    }
+
+    Repetitions(Repetitions copy) {
+        System.arraycopy(copy.keys, 0, keys, 0, SIZE);
+        System.arraycopy(copy.counts, 0, counts, 0, SIZE);
+        System.arraycopy(copy.displaced, 0, displaced, 0, SIZE);
+        System.arraycopy(copy.latest, 0, latest, 0, TABLE_SIZE);
+        size = copy.size;
+    }
+
+    /**
+     * Records the position a move is leaving.
+     *
+     * @param window the number of the latest recorded positions that can equal it, which is
+     *               the number of moves since the last capture or pawn move
+     */
+    void push(long key, int window) {
+        var count = count(key, window);
+        var folded = fold(key, size);
+        var entry = size & (SIZE - 1);
+        var slot = slot(folded);
+        keys[entry] = folded;
+        counts[entry] = (byte) Math.min(count, Byte.MAX_VALUE);
+        displaced[entry] = latest[slot];
+        latest[slot] = size + 1;
+        size++;
+    }
+
+    /**
+     * Forgets the latest recorded position, when its move is taken back.
+     */
+    void pop() {
+        size--;
+        var entry = size & (SIZE - 1);
+        latest[slot(keys[entry])] = displaced[entry];
+    }
+
+    /**
+     * @param window as for {@link #push}
+     * @return the number of times the position has occurred, including now.
+     */
+    int count(long key, int window) {
+        var folded = fold(key, size);
+        var oldest = Math.max(size - window, size - SIZE);
+        var index = latest[slot(folded)] - 1;
+        if (index < oldest || index >= size) {
+            return 1;
+        }
+        if (keys[index & (SIZE - 1)] == folded) {
+            return counts[index & (SIZE - 1)] + 1;
+        }
+        // Another position shares the slot and hides any earlier entries, so look for them.
+        for (var i = size - 2; i >= oldest; i -= 2) {
+            if (keys[i & (SIZE - 1)] == folded) {
+                return counts[i & (SIZE - 1)] + 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @param window as for {@link #push}
+     * @return the keys of the recorded positions that can still repeat, oldest first, as they
+     * were pushed. Pushing them in order, each with its index as the window, restores them.
+     */
+    long[] keys(int window) {
+        var count = Math.min(Math.min(window, size), SIZE);
+        var keys = new long[count];
+        for (var i = 0; i < count; i++) {
+            var index = size - count + i;
+            keys[i] = fold(this.keys[index & (SIZE - 1)], index);
+        }
+        return keys;
+    }
+
+    private static long fold(long key, int index) {
+        return (index & 1) == 0 ? key : key ^ ODD_PLY;
+    }
+
+    private static int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & (TABLE_SIZE - 1);
+    }
+}
@@ -0,0 +1,115 @@
+package chess;
+
+import chess.rules.MoveGenerator;
+
+import java.util.ArrayList;
+
+/**
+ * Reads moves in Standard Algebraic Notation, such as "Nf3", "exd5", "O-O" or "e8=Q+".
+ */
+public class San {
+
+    /**
+     * Finds the legal move that the notation names in the game's current position.
+     *
+     * @throws IllegalArgumentException if the notation does not name exactly one legal move.
+     */
+    public static ChessMove parse(ChessGame game, String san) {
+        var text = san.replaceAll("[+#!?]+$", "");
+        var board = game.getBoard();
+        var turn = game.getTeamTurn();
+        var legal = new ArrayList<ChessMove>();
+        MoveGenerator.legalMoves(board, turn, legal);
+
+        var row = turn == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (text.equals("O-O") || text.equals("0-0")) {
+            return find(legal, san, ChessPosition.of(row, 5), ChessPosition.of(row, 7), ChessPiece.PieceType.KING, board);
+        }
+        if (text.equals("O-O-O") || text.equals("0-0-0")) {
+            return find(legal, san, ChessPosition.of(row, 5), ChessPosition.of(row, 3), ChessPiece.PieceType.KING, board);
+        }
+
+        ChessPiece.PieceType promotion = null;
+        var equals = text.indexOf('=');
+        if (equals >= 0 || (text.length() > 2 && "QRBN".indexOf(text.charAt(text.length() - 1)) >= 0 && Character.isDigit(text.charAt(text.length() - 2)))) {
+            promotion = type(text.charAt(text.length() - 1));
+            text = text.substring(0, equals >= 0 ? equals : text.length() - 1);
+        }
+        if (text.length() < 2) {
+            throw invalid(san);
+        }
+
+        var type = ChessPiece.PieceType.PAWN;
+        if ("KQRBN".indexOf(text.charAt(0)) >= 0) {
+            type = type(text.charAt(0));
+            text = text.substring(1);
+        }
+        var target = square(text.substring(text.length() - 2), san);
+        var disambiguation = text.substring(0, text.length() - 2).replace("x", "");
+
+        ChessMove match = null;
+        for (var move : legal) {
+            var start = move.getStartPosition();
+            if (!move.getEndPosition().equals(target)
+                    || move.getPromotionPiece() != promotion
+                    || board.getPiece(start).getPieceType() != type
+                    || !matches(start, disambiguation)) {
+                continue;
+            }
+            if (match != null) {
+                throw new IllegalArgumentException("Ambiguous move: " + san);
+            }
+            match = move;
+        }
+        if (match == null) {
+            throw invalid(san);
+        }
+        return match;
+    }
+
+    private static ChessMove find(ArrayList<ChessMove> legal, String san, ChessPosition start, ChessPosition end, ChessPiece.PieceType type, ChessBoard board) {
+        for (var move : legal) {
+            if (move.getStartPosition().equals(start) && move.getEndPosition().equals(end) && board.getPiece(start).getPieceType() == type) {
+                return move;
+            }
+        }
+        throw invalid(san);
+    }
+
+    private static boolean matches(ChessPosition start, String disambiguation) {
+        for (var c : disambiguation.toCharArray()) {
+            if (c >= 'a' && c <= 'h' && start.getColumn() != c - 'a' + 1) {
+                return false;
+            }
+            if (c >= '1' && c <= '8' && start.getRow() != c - '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ChessPosition square(String text, String san) {
+        var col = text.charAt(0) - 'a' + 1;
+        var row = text.charAt(1) - '0';
+        var position = ChessPosition.of(row, col);
+        if (!position.isValid()) {
+            throw invalid(san);
+        }
+        return position;
+    }
+
+    private static ChessPiece.PieceType type(char c) {
+        return switch (c) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> throw new IllegalArgumentException("Invalid piece: " + c);
+        };
+    }
+
+    private static IllegalArgumentException invalid(String san) {
+        return new IllegalArgumentException("Invalid move: " + san);
+    }
+}
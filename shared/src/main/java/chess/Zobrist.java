@@ -0,0 +1,72 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of chess positions. The keys come from a fixed seed so that
+ * position keys are the same in every process and can be stored or shared.
+ */
+public class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        var random = new SplittableRandom(0x240C4E55L);
+        for (var keys : PIECE_SQUARE) {
+            for (var i = 0; i < keys.length; i++) {
+                keys[i] = random.nextLong();
+            }
+        }
+        // Each castling right gets a key and a set of rights is the XOR of its members.
+        var rightKeys = new long[4];
+        for (var i = 0; i < rightKeys.length; i++) {
+            rightKeys[i] = random.nextLong();
+        }
+        for (var rights = 0; rights < CASTLING.length; rights++) {
+            for (var i = 0; i < rightKeys.length; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING[rights] ^= rightKeys[i];
+                }
+            }
+        }
+        for (var i = 0; i < EN_PASSANT_FILE.length; i++) {
+            EN_PASSANT_FILE[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    /**
+     * @return the key for a piece, identified by its {@link ChessBoard#pieceIndex} value, on a square.
+     */
+    public static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    /**
+     * @return the key for a set of {@link ChessBoard} castling rights.
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @return the key for an en passant target square, or 0 if there is none.
+     */
+    public static long enPassant(int square) {
+        return square < 0 ? 0 : EN_PASSANT_FILE[square & 7];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    /**
+     * @return the full key for a position: pieces, castling rights, en passant square and team to move.
+     */
+    public static long position(ChessBoard board, ChessGame.TeamColor turn) {
+        var key = board.hash() ^ castling(board.castlingRights()) ^ enPassant(board.enPassantSquare());
+        return turn == ChessGame.TeamColor.BLACK ? key ^ BLACK_TO_MOVE : key;
+    }
+}
@@ -0,0 +1,214 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.InvalidMoveException;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays engine-against-engine games on a pool of worker threads, both to compare two engine
+ * configurations and to load the shared rules code from many threads at once. Each opening
+ * is played twice, once with each player as white. Moves are made through
+ * {@link ChessGame#play}, and a game is drawn when the move outcome is a draw or when it
+ * reaches the ply limit.
+ * <p>
+ * Usage: {@code Arena [--rounds N] [--workers N] [--depth N] [--millis N] [--plies N] [openings.fen]},
+ * where the openings file has one FEN per line.
+ */
+public class Arena {
+    public static final int DEFAULT_MAX_PLIES = 300;
+
+    /**
+     * An engine and the limits it searches with. Games ask the engine to search on the
+     * worker thread, so allocation is measured there.
+     */
+    public record Player(String name, Engine engine, SearchLimits limits) {
+    }
+
+    /**
+     * The totals of a match, with wins and losses from the first player's side.
+     *
+     * @param moves          the number of moves searched by either player
+     * @param searchNanos    the time spent searching
+     * @param allocatedBytes the heap allocated by the worker threads while searching and
+     *                       moving, or -1 if the JVM cannot measure it
+     */
+    public record Result(int wins, int draws, int losses, long moves, long nodes, long searchNanos,
+                         long allocatedBytes, long wallMillis) {
+        public int games() {
+            return wins + draws + losses;
+        }
+
+        /**
+         * @return the first player's share of the points, counting a draw as half.
+         */
+        public double score() {
+            return games() == 0 ? 0 : (wins + draws / 2.0) / games();
+        }
+
+        public long nodesPerSecond() {
+            return nodes * 1_000_000_000 / Math.max(searchNanos, 1);
+        }
+
+        public double millisPerMove() {
+            return moves == 0 ? 0 : searchNanos / 1e6 / moves;
+        }
+
+        /**
+         * @return the bytes allocated per second of search, or -1 if unknown.
+         */
+        public long allocationRate() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes * 1_000_000_000 / Math.max(searchNanos, 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("+%d =%d -%d (%.1f%%), %,d moves, %,d nodes/sec, %.2f ms/move, %,d MB/sec allocated, %,d ms",
+                    wins, draws, losses, score() * 100, moves, nodesPerSecond(), millisPerMove(),
+                    allocationRate() < 0 ? -1 : allocationRate() >> 20, wallMillis);
+        }
+    }
+
+    private final int workers;
+    private final int maxPlies;
+
+    /**
+     * @param workers  the number of games played at once
+     * @param maxPlies the number of plies after which a game is drawn
+     */
+    public Arena(int workers, int maxPlies) {
+        this.workers = workers;
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Plays each opening the given number of times with each player as white.
+     *
+     * @param openings the starting positions, as FEN
+     */
+    public Result play(Player first, Player second, List<String> openings, int rounds) throws InterruptedException {
+        var start = System.nanoTime();
+        var tally = new Tally();
+        var pool = Executors.newFixedThreadPool(workers);
+        try {
+            var games = new ArrayList<Future<?>>();
+            for (var round = 0; round < rounds; round++) {
+                for (var opening : openings) {
+                    games.add(pool.submit(() -> {
+                        playGame(opening, first, second, tally, true);
+                        return null;
+                    }));
+                    games.add(pool.submit(() -> {
+                        playGame(opening, second, first, tally, false);
+                        return null;
+                    }));
+                }
+            }
+            for (var game : games) {
+                game.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Game failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(tally.wins.intValue(), tally.draws.intValue(), tally.losses.intValue(), tally.moves.get(),
+                tally.nodes.get(), tally.searchNanos.get(), tally.allocatedBytes.get(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void playGame(String opening, Player white, Player black, Tally tally, boolean firstIsWhite) throws InvalidMoveException {
+        var game = Fen.parse(opening);
+        ChessGame.TeamColor winner = null;
+        for (var ply = 0; ply < maxPlies; ply++) {
+            var player = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? white : black;
+            var allocated = allocatedBytes();
+            var searchStart = System.nanoTime();
+            var result = player.engine().search(game, player.limits());
+            tally.searchNanos.addAndGet(System.nanoTime() - searchStart);
+            tally.nodes.addAndGet(result.nodes());
+            if (result.move() == null) {
+                break;
+            }
+            var outcome = game.play(result.move());
+            tally.moves.incrementAndGet();
+            if (allocated >= 0) {
+                tally.allocatedBytes.addAndGet(allocatedBytes() - allocated);
+            } else {
+                tally.allocatedBytes.set(-1);
+            }
+            if (outcome.isCheckmate()) {
+                winner = outcome.mover();
+                break;
+            }
+            if (outcome.isDraw()) {
+                break;
+            }
+        }
+
+        if (winner == null) {
+            tally.draws.incrementAndGet();
+        } else if ((winner == ChessGame.TeamColor.WHITE) == firstIsWhite) {
+            tally.wins.incrementAndGet();
+        } else {
+            tally.losses.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the bytes the current thread has allocated, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static class Tally {
+        final AtomicLong wins = new AtomicLong();
+        final AtomicLong draws = new AtomicLong();
+        final AtomicLong losses = new AtomicLong();
+        final AtomicLong moves = new AtomicLong();
+        final AtomicLong nodes = new AtomicLong();
+        final AtomicLong searchNanos = new AtomicLong();
+        final AtomicLong allocatedBytes = new AtomicLong();
+    }
+
+    public static void main(String[] args) throws Exception {
+        var rounds = 1;
+        var workers = Runtime.getRuntime().availableProcessors();
+        var depth = 4;
+        var millis = 0L;
+        var plies = DEFAULT_MAX_PLIES;
+        List<String> openings = List.of(Fen.START);
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--millis" -> millis = Long.parseLong(args[++i]);
+                case "--plies" -> plies = Integer.parseInt(args[++i]);
+                default -> openings = Files.readAllLines(Path.of(args[i])).stream()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .toList();
+            }
+        }
+
+        var limits = new SearchLimits(depth, millis);
+        try (var first = new Engine(workers, 0, 64); var second = new Engine(workers, 0, 64)) {
+            var result = new Arena(workers, plies).play(new Player("first", first, limits), new Player("second", second, limits), openings, rounds);
+            System.out.printf("%d games on %d workers: %s%n", result.games(), workers, result);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs searches on its own pool of daemon threads so that callers, such as request
+ * handling threads, never do the thinking themselves. All searches share one
+ * transposition table.
+ * <p>
+ * A search whose limits allow more than one thread runs Lazy SMP: helper threads search the
+ * same position through the shared table, starting at staggered depths, and the table
+ * entries they leave behind let the main thread cut off more of its tree. Helpers come
+ * from a pool whose size is a global cap, so a search gets fewer helpers than it asked for
+ * when other searches are already using them.
+ * <p>
+ * Searches probe the engine's {@link Tablebases}, if it has any, so endgames they cover are
+ * answered instantly and perfectly.
+ */
+public class Engine implements AutoCloseable {
+    private final ExecutorService pool;
+    private final ExecutorService helpers;
+    private final Semaphore helperPermits;
+    private final TranspositionTable table;
+    private final Tablebases tablebases;
+
+    /**
+     * @param threads        the number of searches that may run at once
+     * @param tableMegabytes the size of the shared transposition table
+     */
+    public Engine(int threads, int tableMegabytes) {
+        this(threads, Runtime.getRuntime().availableProcessors() - 1, tableMegabytes);
+    }
+
+    /**
+     * @param threads        the number of searches that may run at once
+     * @param maxHelpers     the number of Lazy SMP helper threads shared by all searches
+     * @param tableMegabytes the size of the shared transposition table
+     */
+    public Engine(int threads, int maxHelpers, int tableMegabytes) {
+        this(threads, maxHelpers, tableMegabytes, null);
+    }
+
+    /**
+     * @param threads        the number of searches that may run at once
+     * @param maxHelpers     the number of Lazy SMP helper threads shared by all searches
+     * @param tableMegabytes the size of the shared transposition table
+     * @param tablebases     the endgame tables to probe, or null
+     */
+    public Engine(int threads, int maxHelpers, int tableMegabytes, Tablebases tablebases) {
+        this.tablebases = tablebases;
+        pool = Executors.newFixedThreadPool(threads, threadFactory("chess-engine-"));
+        helpers = Executors.newFixedThreadPool(Math.max(1, maxHelpers), threadFactory("chess-engine-helper-"));
+        helperPermits = new Semaphore(Math.max(0, maxHelpers));
+        table = new TranspositionTable(tableMegabytes);
+    }
+
+    /**
+     * Searches a copy of the game on the engine's pool.
+     *
+     * @return a future that completes with the search result.
+     */
+    public CompletableFuture<SearchResult> think(ChessGame game, SearchLimits limits) {
+        var copy = copy(game);
+        return CompletableFuture.supplyAsync(() -> search(copy, limits), pool);
+    }
+
+    /**
+     * Searches on the calling thread, with as many helpers as the limits ask for and the
+     * global cap allows. The result comes from the calling thread's search; its node count
+     * includes the helpers.
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        var granted = 0;
+        while (granted < limits.threads() - 1 && helperPermits.tryAcquire()) {
+            granted++;
+        }
+
+        var abort = new AtomicBoolean();
+        var tasks = new ArrayList<Future<Long>>();
+        for (var i = 0; i < granted; i++) {
+            var helper = new Search(table, tablebases);
+            var startDepth = 1 + (i % 2);
+            tasks.add(helpers.submit(() -> {
+                try {
+                    helper.search(game, limits, startDepth, abort);
+                    return helper.nodes();
+                } finally {
+                    helperPermits.release();
+                }
+            }));
+        }
+
+        SearchResult result;
+        try {
+            result = new Search(table, tablebases).search(game, limits, 1, abort);
+        } finally {
+            abort.set(true);
+        }
+
+        var nodes = result.nodes();
+        for (var task : tasks) {
+            try {
+                nodes += task.get();
+            } catch (Exception ignored) {
+                // A helper that failed contributed nothing but entries to the table.
+            }
+        }
+        return new SearchResult(result.move(), result.score(), result.depth(), nodes, result.millis(), result.pv());
+    }
+
+    public TranspositionTable table() {
+        return table;
+    }
+
+    /**
+     * @return the endgame tables, or null.
+     */
+    public Tablebases tablebases() {
+        return tablebases;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        helpers.shutdownNow();
+    }
+
+    private static ChessGame copy(ChessGame game) {
+        var copy = new ChessGame();
+        copy.setBoard(new ChessBoard(game.getBoard()));
+        copy.setTeamTurn(game.getTeamTurn());
+        return copy;
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        var count = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+    }
+}
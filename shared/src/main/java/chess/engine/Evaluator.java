@@ -0,0 +1,97 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Scores a position in centipawns from material and piece-square tables. The tables are
+ * written from white's side with a8 in the top left, so white looks squares up with
+ * {@code square ^ 56} and black with the square itself.
+ */
+public class Evaluator {
+    /**
+     * Piece values indexed by {@link ChessPiece.PieceType} ordinal.
+     */
+    public static final int[] VALUES = {0, 900, 330, 320, 500, 100};
+
+    private static final int[] KING = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+
+    private static final int[] PAWN = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final int[][] TABLES = {KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN};
+
+    /**
+     * @return the score of the position for the given team.
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor color) {
+        var score = 0;
+        for (var type : ChessPiece.PieceType.values()) {
+            var table = TABLES[type.ordinal()];
+            var value = VALUES[type.ordinal()];
+            for (var pieces = board.pieces(ChessGame.TeamColor.WHITE, type); pieces != 0; pieces &= pieces - 1) {
+                score += value + table[Long.numberOfTrailingZeros(pieces) ^ 56];
+            }
+            for (var pieces = board.pieces(ChessGame.TeamColor.BLACK, type); pieces != 0; pieces &= pieces - 1) {
+                score -= value + table[Long.numberOfTrailingZeros(pieces)];
+            }
+        }
+        return color == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
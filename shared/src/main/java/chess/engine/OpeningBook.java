@@ -0,0 +1,133 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.rules.MoveGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A read-only opening book that is memory mapped rather than loaded, so opening it costs
+ * almost nothing in time or heap no matter how large the file is.
+ * <p>
+ * The file holds a 16 byte header (the magic number, a format version and the entry count)
+ * followed by 16 byte entries sorted by position key: the {@link ChessGame#positionKey()}
+ * as a long, the {@link PackedMove packed} move as an int and the move's weight as an int.
+ * A position's moves are adjacent, so a lookup is a binary search. Files are written by
+ * {@link OpeningBookBuilder}.
+ */
+public class OpeningBook {
+    public static final int MAGIC = 0x4348424B;
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 16;
+
+    /**
+     * A book move and its weight. Moves with larger weights are played more often.
+     */
+    public record Entry(ChessMove move, int weight) {
+    }
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        size = buffer.getInt(8);
+        if (buffer.capacity() < HEADER_SIZE + (long) size * ENTRY_SIZE) {
+            throw new IOException("Opening book is truncated");
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps a book file into memory.
+     *
+     * @throws IOException if the file cannot be read or is not an opening book.
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the number of entries in the book.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the book moves for the position, best weighted first.
+     */
+    public List<Entry> moves(long positionKey) {
+        var result = new ArrayList<Entry>();
+        for (var i = firstIndex(positionKey); i < size && key(i) == positionKey; i++) {
+            var offset = HEADER_SIZE + i * ENTRY_SIZE;
+            result.add(new Entry(PackedMove.toChessMove(buffer.getInt(offset + 8)), buffer.getInt(offset + 12)));
+        }
+        return result;
+    }
+
+    /**
+     * Picks a legal book move for the game at random, in proportion to the move weights.
+     *
+     * @return the move, or null if the book has no move for the position.
+     */
+    public ChessMove pick(ChessGame game, RandomGenerator random) {
+        var legal = new MoveList();
+        MoveGenerator.legalMoves(game.getBoard(), game.getTeamTurn(), legal);
+
+        var candidates = new ArrayList<Entry>();
+        long total = 0;
+        for (var entry : moves(game.positionKey())) {
+            // A hash collision could name a move that is illegal here.
+            if (entry.weight() > 0 && legal.contains(PackedMove.encode(entry.move()))) {
+                candidates.add(entry);
+                total += entry.weight();
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+
+        var choice = random.nextLong(total);
+        for (var entry : candidates) {
+            choice -= entry.weight();
+            if (choice < 0) {
+                return entry.move();
+            }
+        }
+        return candidates.get(candidates.size() - 1).move();
+    }
+
+    private int firstIndex(long positionKey) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (key(mid) < positionKey) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long key(int index) {
+        return buffer.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+}
@@ -0,0 +1,214 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import chess.San;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link OpeningBook} file from finished games. Each of the first plies of a game
+ * adds weight to the move played: two for the winner's moves, one for either side's moves
+ * in a draw and nothing for the loser's, so the book prefers moves that did well.
+ * <p>
+ * Usage: {@code OpeningBookBuilder [--plies N] book.bin games.pgn...}.
+ */
+public class OpeningBookBuilder {
+    public static final int DEFAULT_PLIES = 16;
+
+    private final int plies;
+    private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+    private int games;
+
+    public OpeningBookBuilder(int plies) {
+        this.plies = plies;
+    }
+
+    /**
+     * Adds the opening of a game played from the standard starting position.
+     *
+     * @param moves  the game's moves
+     * @param winner the team that won, or null for a draw
+     * @throws InvalidMoveException if the moves are not a legal game.
+     */
+    public void addGame(List<ChessMove> moves, ChessGame.TeamColor winner) throws InvalidMoveException {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        for (var i = 0; i < Math.min(plies, moves.size()); i++) {
+            var mover = game.getTeamTurn();
+            var weight = winner == null ? 1 : winner == mover ? 2 : 0;
+            var key = game.positionKey();
+            var move = moves.get(i);
+            game.makeMove(move);
+            if (weight > 0) {
+                weights.computeIfAbsent(key, k -> new HashMap<>()).merge(PackedMove.encode(move), weight, Integer::sum);
+            }
+        }
+        games++;
+    }
+
+    /**
+     * Adds every decided or drawn game in a PGN file. Games with an unknown result, or that
+     * start from a set up position, are skipped.
+     *
+     * @throws IllegalArgumentException if a move cannot be read.
+     */
+    public void addPgn(Reader reader) throws IOException, InvalidMoveException {
+        var text = readAll(reader);
+        var tokens = new ArrayList<String>();
+        String result = null;
+        var setUp = false;
+        var i = 0;
+        while (i < text.length()) {
+            var c = text.charAt(i);
+            if (c == '[') {
+                var end = text.indexOf(']', i);
+                var tag = text.substring(i + 1, end < 0 ? text.length() : end).trim();
+                if (tag.startsWith("Result ")) {
+                    result = tag.substring(tag.indexOf('"') + 1, tag.lastIndexOf('"'));
+                } else if (tag.startsWith("FEN ") || tag.startsWith("SetUp \"1\"")) {
+                    setUp = true;
+                }
+                i = end < 0 ? text.length() : end + 1;
+            } else if (c == '{') {
+                var end = text.indexOf('}', i);
+                i = end < 0 ? text.length() : end + 1;
+            } else if (c == ';') {
+                var end = text.indexOf('\n', i);
+                i = end < 0 ? text.length() : end + 1;
+            } else if (c == '(') {
+                i = skipVariation(text, i);
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                var start = i;
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i)) && "{([;".indexOf(text.charAt(i)) < 0) {
+                    i++;
+                }
+                var token = text.substring(start, i);
+                if (token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*")) {
+                    if (!setUp) {
+                        addPgnGame(tokens, result != null ? result : token);
+                    }
+                    tokens.clear();
+                    result = null;
+                    setUp = false;
+                } else {
+                    tokens.add(token);
+                }
+            }
+        }
+    }
+
+    private void addPgnGame(List<String> tokens, String result) throws InvalidMoveException {
+        ChessGame.TeamColor winner;
+        switch (result) {
+            case "1-0" -> winner = ChessGame.TeamColor.WHITE;
+            case "0-1" -> winner = ChessGame.TeamColor.BLACK;
+            case "1/2-1/2" -> winner = null;
+            default -> {
+                return;
+            }
+        }
+
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        var moves = new ArrayList<ChessMove>();
+        for (var token : tokens) {
+            // Move numbers ("12." or "12...") and annotation glyphs ("$1") are not moves.
+            var san = token.replaceFirst("^\\d+\\.+", "");
+            if (san.isEmpty() || san.startsWith("$")) {
+                continue;
+            }
+            if (moves.size() >= plies) {
+                break;
+            }
+            var move = San.parse(game, san);
+            game.makeMove(move);
+            moves.add(move);
+        }
+        addGame(moves, winner);
+    }
+
+    /**
+     * @return the number of games added.
+     */
+    public int games() {
+        return games;
+    }
+
+    /**
+     * Writes the book, with each position's moves ordered by descending weight.
+     */
+    public void write(Path path) throws IOException {
+        var entries = new ArrayList<long[]>();
+        weights.forEach((key, moves) -> moves.forEach((move, weight) -> entries.add(new long[]{key, move, weight})));
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(entries.size());
+            out.writeInt(0);
+            for (var entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeInt((int) entry[1]);
+                out.writeInt((int) Math.min(entry[2], Integer.MAX_VALUE));
+            }
+        }
+    }
+
+    private static int skipVariation(String text, int i) {
+        var depth = 0;
+        for (; i < text.length(); i++) {
+            if (text.charAt(i) == '(') {
+                depth++;
+            } else if (text.charAt(i) == ')' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return i;
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        var sb = new StringBuilder();
+        var buffer = new char[8192];
+        for (int n; (n = reader.read(buffer)) > 0; ) {
+            sb.append(buffer, 0, n);
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        var plies = DEFAULT_PLIES;
+        var first = 0;
+        if (args.length > 1 && args[0].equals("--plies")) {
+            plies = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length - first < 2) {
+            System.err.println("Usage: OpeningBookBuilder [--plies N] book.bin games.pgn...");
+            System.exit(1);
+        }
+
+        var builder = new OpeningBookBuilder(plies);
+        for (var i = first + 1; i < args.length; i++) {
+            try (var reader = Files.newBufferedReader(Path.of(args[i]))) {
+                builder.addPgn(reader);
+            }
+        }
+        builder.write(Path.of(args[first]));
+        System.out.printf("Wrote %d positions from %d games to %s%n", builder.weights.size(), builder.games(), args[first]);
+    }
+}
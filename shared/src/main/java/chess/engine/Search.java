@@ -0,0 +1,380 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.Zobrist;
+import chess.rules.MoveGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative-deepening alpha-beta search with a quiescence search at the leaves. A search
+ * owns its board copy and scratch arrays, so each thread needs its own instance; the
+ * transposition table may be shared. Several instances searching the same position through
+ * one table form a Lazy SMP search, see {@link Engine}.
+ * <p>
+ * With {@link Tablebases}, positions the tables cover are scored from the tables instead of
+ * searched, and a covered root position is answered without searching at all.
+ */
+public class Search {
+    public static final int MATE = 30000;
+    private static final int INFINITY = 32000;
+    private static final int MAX_PLY = 128;
+
+    private static final int TT_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 20;
+    private static final int KILLER_SCORE = 1 << 19;
+
+    private final TranspositionTable table;
+    private final Tablebases tablebases;
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][];
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    private ChessBoard board;
+    private int rootBestMove;
+    private long nodes;
+    private long deadline;
+    private AtomicBoolean abort;
+    private volatile boolean stopped;
+
+    public Search(TranspositionTable table) {
+        this(table, null);
+    }
+
+    /**
+     * @param tablebases the endgame tables to probe, or null
+     */
+    public Search(TranspositionTable table, Tablebases tablebases) {
+        this.table = table;
+        this.tablebases = tablebases;
+        for (var i = 0; i < MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+            moveScores[i] = new int[256];
+        }
+    }
+
+    /**
+     * Searches the game's position within the limits. The game is not modified.
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return search(game, limits, 1, new AtomicBoolean());
+    }
+
+    /**
+     * Searches with iterative deepening starting at the given depth. Lazy SMP helpers start
+     * at different depths so that they fill the shared table ahead of the main search.
+     *
+     * @param abort a flag shared by a group of searches; setting it stops all of them.
+     */
+    SearchResult search(ChessGame game, SearchLimits limits, int startDepth, AtomicBoolean abort) {
+        var start = System.nanoTime();
+        this.abort = abort;
+        board = new ChessBoard(game.getBoard());
+        var turn = game.getTeamTurn();
+        nodes = 0;
+        stopped = false;
+        deadline = limits.millis() > 0 ? start + limits.millis() * 1_000_000 : Long.MAX_VALUE;
+        for (var killer : killers) {
+            killer[0] = killer[1] = 0;
+        }
+
+        var rootMoves = new MoveList();
+        MoveGenerator.legalMoves(board, turn, rootMoves);
+        if (rootMoves.isEmpty()) {
+            var score = inCheck(turn) ? -MATE : 0;
+            return new SearchResult(null, score, 0, 0, elapsedMillis(start), List.of());
+        }
+        var answer = tablebases == null ? null : tablebases.result(board, turn, limits.depth());
+        if (answer != null) {
+            return answer;
+        }
+
+        var bestMove = rootMoves.get(0);
+        var bestScore = 0;
+        var completedDepth = 0;
+        for (var depth = Math.min(startDepth, limits.depth()); depth <= limits.depth(); depth++) {
+            var score = negamax(turn, depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+            bestMove = rootBestMove;
+            bestScore = score;
+            completedDepth = depth;
+            if (Math.abs(score) >= MATE - depth) {
+                break;
+            }
+        }
+        var pv = principalVariation(turn, bestMove, Math.max(completedDepth, 1));
+        return new SearchResult(PackedMove.toChessMove(bestMove), bestScore, completedDepth, nodes, elapsedMillis(start), pv);
+    }
+
+    /**
+     * Follows the table's best moves from the root. Entries can be overwritten, so each move
+     * is checked for legality and the line ends at the first miss.
+     */
+    private List<ChessMove> principalVariation(ChessGame.TeamColor turn, int bestMove, int depth) {
+        var pv = new ArrayList<ChessMove>();
+        var legal = new MoveList();
+        var move = bestMove;
+        while (pv.size() < depth) {
+            legal.clear();
+            MoveGenerator.legalMoves(board, turn, legal);
+            var index = legal.indexOf(move);
+            if (move == 0 || index < 0) {
+                break;
+            }
+            pv.add(PackedMove.toChessMove(move));
+            board.makeMove(legal.get(index));
+            turn = turn.opponent();
+            var entry = table.probe(Zobrist.position(board, turn));
+            move = entry == 0 ? 0 : TranspositionTable.move(entry);
+        }
+        for (var i = 0; i < pv.size(); i++) {
+            board.unmakeMove();
+        }
+        return pv;
+    }
+
+    /**
+     * Asks a running search to return as soon as possible.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return the number of positions visited so far by this search.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    private int negamax(ChessGame.TeamColor turn, int depth, int ply, int alpha, int beta) {
+        var key = Zobrist.position(board, turn);
+        // The board counts repetitions of game positions before the root as well as in the tree.
+        if (ply > 0 && (board.repetitions() > 1 || board.halfmoveClock() >= 100)) {
+            return 0;
+        }
+        if (ply > 0 && tablebases != null && Long.bitCount(board.occupied()) <= Tablebases.MAX_PIECES) {
+            var value = tablebases.probe(board, turn);
+            if (value != Tablebases.NOT_FOUND) {
+                nodes++;
+                return tablebaseScore(value, ply);
+            }
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return quiesce(turn, ply, alpha, beta);
+        }
+        if (shouldStop()) {
+            return 0;
+        }
+        nodes++;
+
+        var entry = table.probe(key);
+        var ttMove = 0;
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                var score = fromTable(TranspositionTable.score(entry), ply);
+                var bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        var moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.legalMoves(board, turn, moves);
+        if (moves.isEmpty()) {
+            return inCheck(turn) ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, ttMove);
+
+        var originalAlpha = alpha;
+        var bestScore = -INFINITY;
+        var bestMove = 0;
+        for (var i = 0; i < moves.size(); i++) {
+            var move = pickMove(moves, ply, i);
+            board.makeMove(move);
+            var score = -negamax(turn.opponent(), depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        if (!PackedMove.hasFlag(move, PackedMove.CAPTURE) && killers[ply][0] != move) {
+                            killers[ply][1] = killers[ply][0];
+                            killers[ply][0] = move;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        var bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * Searches captures and promotions until the position is quiet, so that the static
+     * evaluation is never taken in the middle of an exchange. Every move is searched when in check.
+     */
+    private int quiesce(ChessGame.TeamColor turn, int ply, int alpha, int beta) {
+        if (shouldStop()) {
+            return 0;
+        }
+        nodes++;
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(board, turn);
+        }
+
+        var check = inCheck(turn);
+        if (!check) {
+            var standPat = Evaluator.evaluate(board, turn);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+
+        var moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.legalMoves(board, turn, moves);
+        if (moves.isEmpty()) {
+            return check ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, 0);
+
+        for (var i = 0; i < moves.size(); i++) {
+            var move = pickMove(moves, ply, i);
+            // Captures and promotions are ordered first, so the rest are quiet.
+            if (!check && !PackedMove.hasFlag(move, PackedMove.CAPTURE) && PackedMove.promotion(move) == null) {
+                break;
+            }
+            board.makeMove(move);
+            var score = -quiesce(turn.opponent(), ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score;
+            }
+            alpha = Math.max(alpha, score);
+        }
+        return alpha;
+    }
+
+    /**
+     * Orders the table move first, then captures by most valuable victim and least valuable
+     * attacker, then promotions and killer moves.
+     */
+    private void scoreMoves(MoveList moves, int ply, int ttMove) {
+        var scores = moveScores[ply];
+        if (scores.length < moves.size()) {
+            scores = moveScores[ply] = new int[moves.size()];
+        }
+        for (var i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            var score = 0;
+            if ((move & PackedMove.MOVE_MASK) == ttMove) {
+                score = TT_MOVE_SCORE;
+            } else if (PackedMove.hasFlag(move, PackedMove.CAPTURE)) {
+                var victim = PackedMove.hasFlag(move, PackedMove.EN_PASSANT)
+                        ? ChessPiece.PieceType.PAWN.ordinal()
+                        : board.pieceIndexAt(PackedMove.to(move)) % 6;
+                var attacker = board.pieceIndexAt(PackedMove.from(move)) % 6;
+                score = CAPTURE_SCORE + Evaluator.VALUES[victim] * 16 - Evaluator.VALUES[attacker] / 16;
+            } else if (PackedMove.promotion(move) != null) {
+                score = CAPTURE_SCORE + Evaluator.VALUES[PackedMove.promotion(move).ordinal()];
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Swaps the best scoring remaining move into position i and returns it.
+     */
+    private int pickMove(MoveList moves, int ply, int i) {
+        var scores = moveScores[ply];
+        var best = i;
+        for (var j = i + 1; j < moves.size(); j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            var move = moves.get(i);
+            moves.set(i, moves.get(best));
+            moves.set(best, move);
+            var score = scores[i];
+            scores[i] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(i);
+    }
+
+    private boolean inCheck(ChessGame.TeamColor turn) {
+        var king = board.pieces(turn, ChessPiece.PieceType.KING);
+        return king != 0 && board.isAttacked(Long.numberOfTrailingZeros(king), turn.opponent());
+    }
+
+    private boolean shouldStop() {
+        if ((nodes & 1023) == 0 && (System.nanoTime() > deadline || abort.get())) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * Converts a {@link Tablebases#probe} value into a search score at the given ply.
+     */
+    private static int tablebaseScore(int value, int ply) {
+        if (value > 0) {
+            return MATE - ply - value;
+        }
+        return value < 0 ? -MATE + ply - value - 1 : 0;
+    }
+
+    /**
+     * Mate scores are stored relative to the node rather than the root so that they stay
+     * correct when the position is reached at a different ply.
+     */
+    private static int toTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,41 @@
+package chess.engine;
+
+/**
+ * Bounds a search by depth and by wall clock time. The search stops at whichever limit it
+ * reaches first.
+ *
+ * @param depth   the deepest iteration to run, in plies
+ * @param millis  the time budget, or 0 for no time limit
+ * @param threads the number of threads the search may use, including its own
+ */
+public record SearchLimits(int depth, long millis, int threads) {
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        }
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time limit must not be negative");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+    }
+
+    public SearchLimits(int depth, long millis) {
+        this(depth, millis, 1);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0);
+    }
+
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(MAX_DEPTH, millis);
+    }
+
+    public SearchLimits withThreads(int threads) {
+        return new SearchLimits(depth, millis, threads);
+    }
+}
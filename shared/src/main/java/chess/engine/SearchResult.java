@@ -0,0 +1,26 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The result of the deepest completed search iteration.
+ *
+ * @param move   the best move, or null if the side to move has no legal moves
+ * @param score  the score in centipawns from the mover's point of view
+ * @param depth  the depth of the last completed iteration
+ * @param nodes  the number of positions visited
+ * @param millis the time the search took
+ * @param pv     the principal variation, starting with the best move
+ */
+public record SearchResult(ChessMove move, int score, int depth, long nodes, long millis, List<ChessMove> pv) {
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - SearchLimits.MAX_DEPTH * 2;
+    }
+
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(millis, 1);
+    }
+}
@@ -0,0 +1,38 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.Perft;
+
+/**
+ * Measures how Lazy SMP scales by timing fixed-depth searches of the perft reference
+ * positions at 1, 2, 4 and 8 threads. Each run starts from an empty table, and the speedup
+ * is the single-threaded time divided by the time at each thread count.
+ * <p>
+ * Usage: {@code SmpBenchmark [depth] [tableMegabytes]}.
+ */
+public class SmpBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) {
+        var depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        var megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        double baseline = 0;
+        for (var threads : THREADS) {
+            long millis = 0;
+            long nodes = 0;
+            for (var reference : Perft.REFERENCES) {
+                try (var engine = new Engine(1, threads - 1, megabytes)) {
+                    var result = engine.search(Fen.parse(reference.fen()), SearchLimits.depth(depth).withThreads(threads));
+                    millis += Math.max(result.millis(), 1);
+                    nodes += result.nodes();
+                }
+            }
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.printf("%d thread%s: %,d ms, %,d nodes, %,d nodes/sec, speedup %.2fx%n",
+                    threads, threads == 1 ? " " : "s", millis, nodes, nodes * 1000 / millis, baseline / millis);
+        }
+    }
+}
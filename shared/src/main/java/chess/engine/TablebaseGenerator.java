@@ -0,0 +1,336 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.rules.Attacks;
+import chess.rules.MoveGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates {@link Tablebases} files by retrograde analysis. Every placement of the pieces
+ * is first set up on a {@link ChessBoard} to find its legal moves: checkmates are lost now,
+ * and captures and promotions are scored from the smaller tables they lead to, which are
+ * generated first. Then, a ply at a time, the positions decided at that ply are taken back
+ * a move. A position that can move into a loss for the opponent is won one ply later, and a
+ * position whose every move leads to a win for the opponent is lost. Whatever is left
+ * undecided is a draw.
+ * <p>
+ * Positions are generated without castling rights or en passant captures.
+ * <p>
+ * Usage: {@code TablebaseGenerator directory [material...]}, such as {@code tablebases KQK KRKB}.
+ * Without materials it generates every three piece ending.
+ */
+public class TablebaseGenerator {
+    public static final List<String> THREE_PIECES = List.of("KQK", "KRK", "KBK", "KNK", "KPK");
+
+    private static final byte UNDECIDED = 0;
+    private static final byte DECIDED = 1;
+    private static final byte ILLEGAL = 2;
+    private static final byte CANNOT_LOSE = 3;
+    private static final int MAX_PLIES = 126;
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private final Path directory;
+    private final Tablebases tablebases;
+
+    /**
+     * @param directory where tables are written. Tables already there are reused.
+     * @throws IOException if the directory cannot be created or read.
+     */
+    public TablebaseGenerator(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.tablebases = Tablebases.open(directory);
+    }
+
+    /**
+     * @return the tables in the directory, including those generated since.
+     */
+    public Tablebases tablebases() {
+        return tablebases;
+    }
+
+    /**
+     * Generates the table for a material balance, after the tables it can reach by a capture
+     * or promotion. Tables that already exist are not generated again.
+     *
+     * @throws IllegalArgumentException if the material is not valid or has too many pieces.
+     */
+    public void generate(String material) throws IOException {
+        material = Tablebases.normalize(material);
+        if (material.length() == 2 || tablebases.materials().contains(material)) {
+            return;
+        }
+        for (var next : successors(material)) {
+            generate(next);
+        }
+
+        var values = build(Tablebases.layout(material), tablebases);
+        var path = directory.resolve(material + Tablebases.EXTENSION);
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(Tablebases.MAGIC);
+            out.writeInt(Tablebases.VERSION);
+            out.writeInt(material.length());
+            out.writeInt(0);
+            out.write(values);
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            tablebases.add(material, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the material balances one capture or promotion away.
+     */
+    static List<String> successors(String material) {
+        var result = new ArrayList<String>();
+        for (var i = 0; i < material.length(); i++) {
+            var c = material.charAt(i);
+            if (c == 'K') {
+                continue;
+            }
+            result.add(Tablebases.normalize(material.substring(0, i) + material.substring(i + 1)));
+            if (c == 'P') {
+                for (var promotion : "QRBN".toCharArray()) {
+                    result.add(Tablebases.normalize(material.substring(0, i) + promotion + material.substring(i + 1)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the value of every placement of the layout's pieces, in the table format.
+     *
+     * @param subtables the tables for the materials that captures and promotions lead to.
+     */
+    static byte[] build(int[] layout, Tablebases subtables) {
+        var n = layout.length;
+        var size = (int) Tablebases.size(n);
+        var values = new byte[size];
+        var state = new byte[size];
+        var remaining = new byte[size];
+        var pending = new byte[size];
+        var lossFloor = new byte[size];
+
+        var squares = new int[n];
+        var placed = new int[0];
+        var board = new ChessBoard();
+        board.setCastlingRights(0);
+        var moves = new MoveList();
+        var maxPending = 0;
+
+        for (var index = 0; index < size; index++) {
+            var turn = decode(index, n, squares);
+            if (!placeable(layout, squares)) {
+                state[index] = ILLEGAL;
+                continue;
+            }
+            for (var square : placed) {
+                board.addPiece(ChessBoard.position(square), null);
+            }
+            for (var i = 0; i < n; i++) {
+                board.addPiece(ChessBoard.position(squares[i]), pieceOf(layout[i]));
+            }
+            if (placed.length != n) {
+                placed = new int[n];
+            }
+            System.arraycopy(squares, 0, placed, 0, n);
+            if (inCheck(board, turn.opponent())) {
+                state[index] = ILLEGAL;
+                continue;
+            }
+
+            moves.clear();
+            MoveGenerator.legalMoves(board, turn, moves);
+            if (moves.isEmpty()) {
+                state[index] = DECIDED;
+                values[index] = (byte) (inCheck(board, turn) ? -1 : 0);
+                continue;
+            }
+
+            var internal = 0;
+            var win = Integer.MAX_VALUE;
+            var floor = 0;
+            var draw = false;
+            for (var i = 0; i < moves.size(); i++) {
+                var move = moves.get(i);
+                if (!PackedMove.hasFlag(move, PackedMove.CAPTURE) && PackedMove.promotion(move) == null) {
+                    internal++;
+                    continue;
+                }
+                board.makeMove(move);
+                var value = subtables.probe(board, turn.opponent());
+                board.unmakeMove();
+                if (value == Tablebases.NOT_FOUND) {
+                    throw new IllegalStateException("Missing tablebase after " + PackedMove.toChessMove(move));
+                }
+                if (value < 0) {
+                    win = Math.min(win, -value);
+                } else if (value == 0) {
+                    draw = true;
+                } else {
+                    floor = Math.max(floor, value + 1);
+                }
+            }
+
+            remaining[index] = (byte) internal;
+            lossFloor[index] = (byte) floor;
+            if (win != Integer.MAX_VALUE) {
+                pending[index] = (byte) win;
+                maxPending = Math.max(maxPending, win);
+            } else if (draw) {
+                state[index] = CANNOT_LOSE;
+            } else if (internal == 0) {
+                pending[index] = (byte) -(floor + 1);
+                maxPending = Math.max(maxPending, floor);
+            }
+        }
+
+        for (var ply = 0; ply <= maxPending; ply++) {
+            if (ply > MAX_PLIES) {
+                throw new IllegalStateException("Mate is too long for the table format");
+            }
+            var target = (byte) (ply % 2 == 0 ? -(ply + 1) : ply);
+            for (var index = 0; index < size; index++) {
+                if ((state[index] == UNDECIDED || state[index] == CANNOT_LOSE) && pending[index] == target) {
+                    state[index] = DECIDED;
+                    values[index] = target;
+                } else if (state[index] != DECIDED || values[index] != target) {
+                    continue;
+                }
+
+                // Take back each move the side that just moved could have made.
+                var turn = decode(index, n, squares);
+                var mover = turn.opponent();
+                var occupied = 0L;
+                for (var square : squares) {
+                    occupied |= 1L << square;
+                }
+                for (var i = 0; i < n; i++) {
+                    if (COLORS[layout[i] / 6] != mover) {
+                        continue;
+                    }
+                    var to = squares[i];
+                    for (var from = unmoves(layout[i], to, occupied); from != 0; from &= from - 1) {
+                        squares[i] = Long.numberOfTrailingZeros(from);
+                        var previous = encode(mover, squares);
+                        squares[i] = to;
+                        if (state[previous] == ILLEGAL || state[previous] == DECIDED) {
+                            continue;
+                        }
+                        if (ply % 2 == 0) {
+                            if (pending[previous] <= 0 || pending[previous] > ply + 1) {
+                                pending[previous] = (byte) (ply + 1);
+                                maxPending = Math.max(maxPending, ply + 1);
+                            }
+                        } else if (--remaining[previous] == 0 && state[previous] == UNDECIDED && pending[previous] == 0) {
+                            var loss = Math.max(ply + 1, lossFloor[previous]);
+                            pending[previous] = (byte) -(loss + 1);
+                            maxPending = Math.max(maxPending, loss);
+                        }
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the squares the piece could have come from by a quiet, non-promoting move.
+     */
+    private static long unmoves(int piece, int to, long occupied) {
+        var empty = ~occupied;
+        return switch (TYPES[piece % 6]) {
+            case KING -> Attacks.king(to) & empty;
+            case QUEEN -> Attacks.queen(to, occupied) & empty;
+            case BISHOP -> Attacks.bishop(to, occupied) & empty;
+            case KNIGHT -> Attacks.knight(to) & empty;
+            case ROOK -> Attacks.rook(to, occupied) & empty;
+            case PAWN -> {
+                var white = COLORS[piece / 6] == ChessGame.TeamColor.WHITE;
+                var from = white ? to - 8 : to + 8;
+                if (from < 8 || from > 55 || (occupied & 1L << from) != 0) {
+                    yield 0L;
+                }
+                var result = 1L << from;
+                var rank = to >>> 3;
+                var doubleFrom = white ? to - 16 : to + 16;
+                if ((white ? rank == 3 : rank == 4) && (occupied & 1L << doubleFrom) == 0) {
+                    result |= 1L << doubleFrom;
+                }
+                yield result;
+            }
+        };
+    }
+
+    private static ChessGame.TeamColor decode(int index, int n, int[] squares) {
+        for (var i = n - 1; i >= 0; i--) {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        return index == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    private static int encode(ChessGame.TeamColor turn, int[] squares) {
+        var index = turn == ChessGame.TeamColor.WHITE ? 0 : 1;
+        for (var square : squares) {
+            index = (index << 6) | square;
+        }
+        return index;
+    }
+
+    /**
+     * @return true if no two pieces share a square and no pawn is on the first or last rank.
+     */
+    private static boolean placeable(int[] layout, int[] squares) {
+        for (var i = 0; i < squares.length; i++) {
+            if (TYPES[layout[i] % 6] == ChessPiece.PieceType.PAWN && (squares[i] < 8 || squares[i] > 55)) {
+                return false;
+            }
+            for (var j = 0; j < i; j++) {
+                if (squares[i] == squares[j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean inCheck(ChessBoard board, ChessGame.TeamColor color) {
+        var king = board.pieces(color, ChessPiece.PieceType.KING);
+        return board.isAttacked(Long.numberOfTrailingZeros(king), color.opponent());
+    }
+
+    private static ChessPiece pieceOf(int piece) {
+        return ChessPiece.of(COLORS[piece / 6], TYPES[piece % 6]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: TablebaseGenerator directory [material...]");
+            System.exit(1);
+        }
+        var generator = new TablebaseGenerator(Path.of(args[0]));
+        var materials = args.length > 1 ? List.of(args).subList(1, args.length) : THREE_PIECES;
+        for (var material : materials) {
+            var start = System.nanoTime();
+            generator.generate(material);
+            System.out.printf("%s done in %d ms%n", Tablebases.normalize(material), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.rules.MoveGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Read-only distance-to-mate endgame tables for positions with at most {@link #MAX_PIECES}
+ * pieces, kings included. Each table covers one material balance, such as "KQK" (king and
+ * queen against king) or "KRKB", and answers for either side holding the named material.
+ * Tables are memory mapped, like the {@link OpeningBook}, and written by {@link TablebaseGenerator}.
+ * <p>
+ * A table file holds a 16 byte header (the magic number, a format version and the piece
+ * count) followed by one byte for every placement of the pieces with either side to move.
+ * The placement index is the side to move followed by each piece's square, six bits each,
+ * with the pieces in material order: the first king, its pieces, the second king, its pieces.
+ * A byte of 0 is a draw, n &gt; 0 wins with mate in n plies and -n &lt; 0 loses to mate in
+ * n - 1 plies. Positions with castling rights or an en passant square are not covered.
+ */
+public class Tablebases {
+    public static final int MAGIC = 0x43485442;
+    public static final int VERSION = 1;
+    public static final int MAX_PIECES = 4;
+    public static final String EXTENSION = ".tb";
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Returned by {@link #probe} for positions no table covers.
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    static final String PIECE_LETTERS = "KQRBNP";
+    private static final ChessPiece.PieceType[] TYPES = {
+            ChessPiece.PieceType.KING,
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.PAWN
+    };
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final int[] WEIGHTS = {0, 9, 5, 3, 3, 1};
+
+    /**
+     * The result of best play from a position, for the team to move.
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * @param outcome the result for the team to move
+     * @param plies   the number of plies until mate, or 0 for a draw
+     */
+    public record Score(Outcome outcome, int plies) {
+        /**
+         * @return the number of the winner's moves until mate.
+         */
+        public int movesToMate() {
+            return (plies + 1) / 2;
+        }
+    }
+
+    /**
+     * A table and the piece index, as in {@link ChessBoard#pieceIndex}, of each of its
+     * squares. When a table is used for the opposite colors, colors and ranks are swapped.
+     */
+    private record View(ByteBuffer data, int[] layout, boolean flipped) {
+    }
+
+    // Indexed by the piece indexes + 1 of the pieces other than the kings, lowest first.
+    private final View[] views = new View[13 * 13];
+    private final Set<String> materials = new TreeSet<>();
+
+    public Tablebases() {
+    }
+
+    /**
+     * Maps every table file in a directory into memory. A missing directory has no tables.
+     *
+     * @throws IOException if a table cannot be read.
+     */
+    public static Tablebases open(Path directory) throws IOException {
+        var tablebases = new Tablebases();
+        if (Files.isDirectory(directory)) {
+            try (var files = Files.list(directory)) {
+                for (var path : files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).toList()) {
+                    var name = path.getFileName().toString();
+                    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                        tablebases.add(name.substring(0, name.length() - EXTENSION.length()),
+                                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                    }
+                }
+            }
+        }
+        return tablebases;
+    }
+
+    /**
+     * Adds a table, in the file format, for a material balance.
+     *
+     * @throws IOException if the data is not a table for the material.
+     */
+    synchronized void add(String material, ByteBuffer data) throws IOException {
+        var layout = layout(material);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Not a tablebase: " + material);
+        }
+        if (data.getInt(8) != layout.length || data.capacity() < HEADER_SIZE + size(layout.length)) {
+            throw new IOException("Tablebase is truncated: " + material);
+        }
+        var flippedLayout = new int[layout.length];
+        for (var i = 0; i < layout.length; i++) {
+            flippedLayout[i] = flipColor(layout[i]);
+        }
+        views[key(layout)] = new View(data, layout, false);
+        if (views[key(flippedLayout)] == null) {
+            views[key(flippedLayout)] = new View(data, layout, true);
+        }
+        materials.add(material);
+    }
+
+    /**
+     * @return the material balances with a table, such as "KQK".
+     */
+    public synchronized Set<String> materials() {
+        return Set.copyOf(materials);
+    }
+
+    /**
+     * Looks up the position with the given team to move.
+     *
+     * @return 0 for a draw, n &gt; 0 if the team to move mates in n plies, -n &lt; 0 if it is
+     * mated in n - 1 plies, or {@link #NOT_FOUND} if no table covers the position.
+     */
+    public int probe(ChessBoard board, ChessGame.TeamColor turn) {
+        if (Long.bitCount(board.occupied()) > MAX_PIECES || board.castlingRights() != 0 || board.enPassantSquare() >= 0) {
+            return NOT_FOUND;
+        }
+        if (board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING) == 0
+                || board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING) == 0) {
+            return NOT_FOUND;
+        }
+
+        var first = 0;
+        var second = 0;
+        for (var index = 0; index < 12; index++) {
+            if (index % 6 == ChessPiece.PieceType.KING.ordinal()) {
+                continue;
+            }
+            for (var n = Long.bitCount(pieces(board, index)); n > 0; n--) {
+                if (first == 0) {
+                    first = index + 1;
+                } else {
+                    second = index + 1;
+                }
+            }
+        }
+        if (first == 0) {
+            return 0;
+        }
+        var view = views[first * 13 + second];
+        if (view == null) {
+            return NOT_FOUND;
+        }
+
+        long index = view.flipped() == (turn == ChessGame.TeamColor.WHITE) ? 1 : 0;
+        long remaining = 0;
+        var previous = -1;
+        for (var piece : view.layout()) {
+            var actual = view.flipped() ? flipColor(piece) : piece;
+            if (actual != previous) {
+                remaining = pieces(board, actual);
+                previous = actual;
+            }
+            var square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            index = (index << 6) | (view.flipped() ? square ^ 56 : square);
+        }
+        return view.data().get(HEADER_SIZE + (int) index);
+    }
+
+    /**
+     * @return the result of best play for the team to move, or null if no table covers the position.
+     */
+    public Score score(ChessBoard board, ChessGame.TeamColor turn) {
+        var value = probe(board, turn);
+        if (value == NOT_FOUND) {
+            return null;
+        }
+        if (value > 0) {
+            return new Score(Outcome.WIN, value);
+        }
+        return value < 0 ? new Score(Outcome.LOSS, -value - 1) : new Score(Outcome.DRAW, 0);
+    }
+
+    /**
+     * Finds the move that mates soonest when winning, keeps the draw when drawing and puts
+     * off mate longest when losing.
+     *
+     * @return the move, or null if the team has no moves or a position is not covered.
+     */
+    public ChessMove bestMove(ChessBoard board, ChessGame.TeamColor turn) {
+        var move = bestPackedMove(board, turn);
+        return move == 0 ? null : PackedMove.toChessMove(move);
+    }
+
+    /**
+     * Answers the position from the tables in the form of a search result. The tables are
+     * exact, so the answer is as good as a search to any depth.
+     *
+     * @param depth the depth to report, and the length of the line for a drawn position
+     * @return the result, or null if the team has no moves or the position is not covered.
+     */
+    public SearchResult result(ChessBoard board, ChessGame.TeamColor turn, int depth) {
+        var start = System.nanoTime();
+        var value = probe(board, turn);
+        var move = value == NOT_FOUND ? 0 : bestPackedMove(board, turn);
+        if (move == 0) {
+            return null;
+        }
+        var score = value > 0 ? Search.MATE - value : value < 0 ? -Search.MATE - value - 1 : 0;
+        var line = line(board, turn, value == 0 ? depth : Math.abs(value));
+        return new SearchResult(PackedMove.toChessMove(move), score, depth, 0, (System.nanoTime() - start) / 1_000_000, line);
+    }
+
+    /**
+     * Follows best moves from the position until mate or for at most the given number of plies.
+     */
+    public List<ChessMove> line(ChessBoard board, ChessGame.TeamColor turn, int maxPlies) {
+        var copy = new ChessBoard(board);
+        var line = new ArrayList<ChessMove>();
+        while (line.size() < maxPlies) {
+            var move = bestPackedMove(copy, turn);
+            if (move == 0) {
+                break;
+            }
+            line.add(PackedMove.toChessMove(move));
+            copy.makeMove(move);
+            turn = turn.opponent();
+        }
+        return line;
+    }
+
+    private int bestPackedMove(ChessBoard board, ChessGame.TeamColor turn) {
+        var moves = new MoveList();
+        MoveGenerator.legalMoves(board, turn, moves);
+        var best = 0;
+        var bestRank = Integer.MIN_VALUE;
+        for (var i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            board.makeMove(move);
+            var value = probe(board, turn.opponent());
+            board.unmakeMove();
+            if (value == NOT_FOUND) {
+                return 0;
+            }
+            // Rank from the mover's side: quick wins, then draws, then slow losses.
+            var rank = value < 0 ? 1000 + value : value > 0 ? -1000 + value : 0;
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of placements a table with this many pieces holds.
+     */
+    static long size(int pieces) {
+        return 2L << (6 * pieces);
+    }
+
+    /**
+     * Reads a material balance such as "KRKB" into the piece index of each square of its
+     * tables, the first side's pieces as white.
+     *
+     * @throws IllegalArgumentException if the material is not valid or has too many pieces.
+     */
+    static int[] layout(String material) {
+        var second = material.indexOf('K', 1);
+        if (!material.startsWith("K") || second < 0 || material.indexOf('K', second + 1) >= 0) {
+            throw new IllegalArgumentException("Invalid material: " + material);
+        }
+        if (material.length() > MAX_PIECES) {
+            throw new IllegalArgumentException("Too many pieces: " + material);
+        }
+        var layout = new int[material.length()];
+        for (var i = 0; i < material.length(); i++) {
+            var letter = PIECE_LETTERS.indexOf(material.charAt(i));
+            if (letter < 0) {
+                throw new IllegalArgumentException("Invalid material: " + material);
+            }
+            var color = i < second ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            layout[i] = ChessBoard.pieceIndex(color, TYPES[letter]);
+        }
+        return layout;
+    }
+
+    /**
+     * Sorts each side's pieces into letter order and puts the stronger side first, so that
+     * each material balance has one name.
+     */
+    static String normalize(String material) {
+        layout(material);
+        var second = material.indexOf('K', 1);
+        var white = "K" + sortPieces(material.substring(1, second));
+        var black = "K" + sortPieces(material.substring(second + 1));
+        var order = Integer.compare(weight(white), weight(black));
+        if (order == 0) {
+            order = Integer.compare(white.length(), black.length());
+        }
+        if (order == 0) {
+            order = black.compareTo(white);
+        }
+        return order >= 0 ? white + black : black + white;
+    }
+
+    private static String sortPieces(String pieces) {
+        var letters = pieces.toCharArray();
+        var sorted = new StringBuilder();
+        for (var letter : PIECE_LETTERS.toCharArray()) {
+            for (var c : letters) {
+                if (c == letter) {
+                    sorted.append(c);
+                }
+            }
+        }
+        return sorted.toString();
+    }
+
+    private static int weight(String side) {
+        var weight = 0;
+        for (var c : side.toCharArray()) {
+            weight += WEIGHTS[PIECE_LETTERS.indexOf(c)];
+        }
+        return weight;
+    }
+
+    private static int key(int[] layout) {
+        var first = 0;
+        var second = 0;
+        for (var piece : layout) {
+            if (piece % 6 == ChessPiece.PieceType.KING.ordinal()) {
+                continue;
+            }
+            if (first == 0) {
+                first = piece + 1;
+            } else {
+                second = piece + 1;
+            }
+        }
+        return second == 0 ? first * 13 : Math.min(first, second) * 13 + Math.max(first, second);
+    }
+
+    static long pieces(ChessBoard board, int piece) {
+        return board.pieces(COLORS[piece / 6], PIECE_TYPES[piece % 6]);
+    }
+
+    static int flipColor(int piece) {
+        return (piece + 6) % 12;
+    }
+}
@@ -0,0 +1,87 @@
+package chess.engine;
+
+import chess.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by position key. It can be shared by
+ * any number of searching threads without locks: each slot stores its key XORed with its
+ * data, so a slot torn by concurrent writers fails the key check and reads as a miss.
+ * <p>
+ * An entry packs the move in bits 0-14, the score in bits 16-31, the depth in bits 32-39,
+ * the bound in bits 40-41 and a valid flag in bit 42.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    private static final long VALID = 1L << 42;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * @param megabytes approximate memory to use. The slot count is rounded down to a power of two.
+     */
+    public TranspositionTable(int megabytes) {
+        var slots = Integer.highestOneBit(Math.max(1, (int) Math.min((long) megabytes * 1024 * 1024 / 16, 1 << 30)));
+        keys = new long[slots];
+        data = new long[slots];
+        mask = slots - 1;
+    }
+
+    /**
+     * @return the entry for the key, or 0 if the table does not hold it.
+     */
+    public long probe(long key) {
+        var index = (int) key & mask;
+        var entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    /**
+     * Stores a result, keeping a deeper entry for the same position unless the new one is exact.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        var index = (int) key & mask;
+        var old = data[index];
+        if ((keys[index] ^ old) == key && depth < depth(old) && bound != EXACT) {
+            return;
+        }
+        var entry = (move & PackedMove.MOVE_MASK)
+                | ((long) (score & 0xFFFF) << 16)
+                | ((long) depth << 32)
+                | ((long) bound << 40)
+                | VALID;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public static int move(long entry) {
+        return (int) entry & PackedMove.MOVE_MASK;
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+}
@@ -0,0 +1,273 @@
+package chess.rules;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+import static chess.ChessPiece.PieceType.*;
+
+/**
+ * Bitboard attack sets. Squares are numbered as in {@link ChessBoard}, so a1 is 0 and h8 is 63.
+ * <p>
+ * Knight, king and pawn attacks are read from tables. Rook and bishop attacks use magic
+ * bitboards: the blockers on a square's rays are multiplied by a number chosen for the square
+ * so that the top bits of the product index a table of the attack sets for every arrangement
+ * of blockers. The multipliers were found by a random search, since searching at class
+ * initialization takes about a second, and the tables are filled from them.
+ */
+public class Attacks {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MULTIPLIERS = {
+            0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+            0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+            0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+            0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+            0x0080860021004200L, 0x001000C009402002L, 0x00B0002004002800L, 0x100A808010020800L,
+            0x9400808004000800L, 0x0090808004000200L, 0x0000040010810208L, 0x2000020000448534L,
+            0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x4600240900100100L,
+            0x0804080100110004L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+            0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x0080200A02001040L,
+            0x600D480280802400L, 0x400B800201800C00L, 0x2408211004004208L, 0x0200211082000844L,
+            0x0020804010208000L, 0x5030004020104000L, 0xA042084080220010L, 0x4088080010008080L,
+            0x5002080100110004L, 0x2012002010040400L, 0x0040318210440008L, 0x0120941040820001L,
+            0x1000800100402100L, 0x0040002010004840L, 0x8108450020001900L, 0x0200204008120200L,
+            0x0080800C00180180L, 0x0885000400420900L, 0x230802011008C400L, 0x3801740891432200L,
+            0x0A00250212024082L, 0x0000882040001105L, 0x0042102082000A42L, 0xC401210810000501L,
+            0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L
+    };
+    private static final long[] BISHOP_MULTIPLIERS = {
+            0x1862221006220044L, 0x2104A14202020060L, 0x2804081220444001L, 0x2102408900010001L,
+            0x0002021000040002L, 0x08C3100805004300L, 0x1084040124920050L, 0x8900440043382010L,
+            0x2401410802140040L, 0x0901200454208020L, 0x0000090216020541L, 0x1283844040800804L,
+            0x0521840420000803L, 0x0800010402400C40L, 0x0000408E10100404L, 0x0009810048420800L,
+            0x2004211004286808L, 0x13080A1001380080L, 0x0008801004220020L, 0x0024000802480800L,
+            0x1461001190400401L, 0x0020400200500440L, 0x0003000409019000L, 0x000C20820D011802L,
+            0x000804002164100CL, 0x00048400A0011404L, 0x5018110308044100L, 0x0048A00804010020L,
+            0x0007840000802000L, 0x8808A20075004220L, 0x8014040000822100L, 0x110C03000E251101L,
+            0x0081094820202010L, 0x0008041000044100L, 0x00C1202808940800L, 0x8108100821040400L,
+            0x1240010010010041L, 0x0810004080011000L, 0x00A20C0401804A00L, 0x40014C0020050500L,
+            0x5805082012042480L, 0x2004022144031000L, 0x2082002024204808L, 0x0800004200800800L,
+            0x0410020204100A02L, 0x80C1204080804101L, 0x0010104E01800042L, 0x000800810C400208L,
+            0x100080B008201210L, 0x8000440605112101L, 0x000202008C440040L, 0x9004002210442200L,
+            0x2032014088222045L, 0x0C00202222C20000L, 0x0140040820A50100L, 0x0222104C29024018L,
+            0x0200110121202004L, 0x0800104200B00802L, 0x0000401424020801L, 0x4000000004208840L,
+            0x0802E00040104100L, 0x03000020A0424080L, 0x0011C00408188121L, 0x0848020822040013L
+    };
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+
+    /**
+     * The magic lookup for one square: the blockers that matter, the multiplier, how far to
+     * shift the product, and the attack set for each index.
+     */
+    private record Magic(long mask, long multiplier, int shift, long[] attacks) {
+        long attacks(long occupied) {
+            return attacks[(int) (((occupied & mask) * multiplier) >>> shift)];
+        }
+    }
+
+    static {
+        for (var square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = knightAttacks(square);
+            KING_ATTACKS[square] = kingAttacks(square);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = pawnAttacks(ChessGame.TeamColor.WHITE, square);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = pawnAttacks(ChessGame.TeamColor.BLACK, square);
+            ROOK_MAGICS[square] = magic(square, ROOK_DIRECTIONS, ROOK_MULTIPLIERS[square]);
+            BISHOP_MAGICS[square] = magic(square, BISHOP_DIRECTIONS, BISHOP_MULTIPLIERS[square]);
+        }
+
+        for (var from = 0; from < 64; from++) {
+            for (var direction : new int[][]{{1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}}) {
+                var full = ray(from, direction[0], direction[1], 0) | ray(from, -direction[0], -direction[1], 0) | (1L << from);
+                long between = 0;
+                var row = (from >>> 3) + direction[0];
+                var col = (from & 7) + direction[1];
+                while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                    var to = (row << 3) + col;
+                    BETWEEN[from][to] = between;
+                    LINE[from][to] = full;
+                    between |= 1L << to;
+                    row += direction[0];
+                    col += direction[1];
+                }
+            }
+        }
+    }
+
+    public static long knight(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long king(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given color standing on the square attacks.
+     */
+    public static long pawn(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static long rook(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied);
+    }
+
+    public static long bishop(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    public static long queen(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied) | BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    private static long knightAttacks(int square) {
+        var b = 1L << square;
+        var l1 = (b >>> 1) & ~FILE_H;
+        var l2 = (b >>> 2) & ~(FILE_G | FILE_H);
+        var r1 = (b << 1) & ~FILE_A;
+        var r2 = (b << 2) & ~(FILE_A | FILE_B);
+        var h1 = l1 | r1;
+        var h2 = l2 | r2;
+        return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+    }
+
+    private static long kingAttacks(int square) {
+        var b = 1L << square;
+        var row = b | ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+        return (row | (row << 8) | (row >>> 8)) & ~b;
+    }
+
+    private static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        var b = 1L << square;
+        if (color == ChessGame.TeamColor.WHITE) {
+            return ((b << 7) & ~FILE_H) | ((b << 9) & ~FILE_A);
+        }
+        return ((b >>> 9) & ~FILE_H) | ((b >>> 7) & ~FILE_A);
+    }
+
+    /**
+     * @return the squares strictly between two squares that share a rank, file or diagonal, otherwise 0.
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the full rank, file or diagonal through both squares, otherwise 0.
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * @return the pieces of the given color that attack the square, given the occupancy.
+     */
+    public static long attackersTo(ChessBoard board, int square, ChessGame.TeamColor by, long occupied) {
+        var queens = board.pieces(by, QUEEN);
+        return (knight(square) & board.pieces(by, KNIGHT))
+                | (king(square) & board.pieces(by, KING))
+                | (pawn(by.opponent(), square) & board.pieces(by, PAWN))
+                | (rook(square, occupied) & (board.pieces(by, ROOK) | queens))
+                | (bishop(square, occupied) & (board.pieces(by, BISHOP) | queens));
+    }
+
+    /**
+     * Checks the cheap leaper attacks first and only looks up the slider attacks when the
+     * given color has sliders, stopping at the first attacker found.
+     */
+    public static boolean isAttacked(ChessBoard board, int square, ChessGame.TeamColor by, long occupied) {
+        if ((KNIGHT_ATTACKS[square] & board.pieces(by, KNIGHT)) != 0
+                || (PAWN_ATTACKS[by.opponent().ordinal()][square] & board.pieces(by, PAWN)) != 0
+                || (KING_ATTACKS[square] & board.pieces(by, KING)) != 0) {
+            return true;
+        }
+        var queens = board.pieces(by, QUEEN);
+        var straight = board.pieces(by, ROOK) | queens;
+        if (straight != 0 && (ROOK_MAGICS[square].attacks(occupied) & straight) != 0) {
+            return true;
+        }
+        var diagonal = board.pieces(by, BISHOP) | queens;
+        return diagonal != 0 && (BISHOP_MAGICS[square].attacks(occupied) & diagonal) != 0;
+    }
+
+    /**
+     * Fills the attack table for a square, where arrangements of blockers may share an index
+     * only if they have the same attacks.
+     */
+    private static Magic magic(int square, int[][] directions, long multiplier) {
+        var mask = 0L;
+        for (var direction : directions) {
+            mask |= relevantBlockers(square, direction[0], direction[1]);
+        }
+        var shift = 64 - Long.bitCount(mask);
+        var attacks = new long[1 << Long.bitCount(mask)];
+        var filled = new boolean[attacks.length];
+        var blockers = 0L;
+        do {
+            var index = (int) ((blockers * multiplier) >>> shift);
+            var reference = slide(square, blockers, directions);
+            if (filled[index] && attacks[index] != reference) {
+                throw new IllegalStateException("Bad magic multiplier for square " + square);
+            }
+            filled[index] = true;
+            attacks[index] = reference;
+            blockers = (blockers - mask) & mask;
+        } while (blockers != 0);
+        return new Magic(mask, multiplier, shift, attacks);
+    }
+
+    /**
+     * @return the squares along the ray that can block it, which excludes the last square
+     * since a piece there blocks nothing beyond it.
+     */
+    private static long relevantBlockers(int square, int rowInc, int colInc) {
+        long blockers = 0;
+        var row = (square >>> 3) + rowInc;
+        var col = (square & 7) + colInc;
+        while (row + rowInc >= 0 && row + rowInc < 8 && col + colInc >= 0 && col + colInc < 8) {
+            blockers |= 1L << ((row << 3) + col);
+            row += rowInc;
+            col += colInc;
+        }
+        return blockers;
+    }
+
+    private static long slide(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (var direction : directions) {
+            attacks |= ray(square, direction[0], direction[1], occupied);
+        }
+        return attacks;
+    }
+
+    private static long ray(int square, int rowInc, int colInc, long occupied) {
+        long attacks = 0;
+        var row = (square >>> 3) + rowInc;
+        var col = (square & 7) + colInc;
+        while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+            var bit = 1L << ((row << 3) + col);
+            attacks |= bit;
+            if ((occupied & bit) != 0) {
+                break;
+            }
+            row += rowInc;
+            col += colInc;
+        }
+        return attacks;
+    }
+}
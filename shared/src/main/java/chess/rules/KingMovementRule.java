@@ -2,50 +2,62 @@ package chess.rules;
 
 import chess.ChessBoard;
 import chess.ChessGame;
-import chess.ChessMove;
+import chess.ChessPiece;
 import chess.ChessPosition;
-
-import java.util.ArrayList;
-import java.util.Collection;
+import chess.MoveList;
+import chess.PackedMove;
 
 public class KingMovementRule extends MovementRule {
-    @Override
-    public Collection<ChessMove> moves(ChessBoard board, ChessPosition position) {
-        var moves = new ArrayList<ChessMove>();
-        calculateMoves(board, position, -1, 0, moves, false);
-        calculateMoves(board, position, 1, 0, moves, false);
-        calculateMoves(board, position, 0, 1, moves, false);
-        calculateMoves(board, position, 0, -1, moves, false);
-        calculateMoves(board, position, -1, -1, moves, false);
-        calculateMoves(board, position, 1, 1, moves, false);
-        calculateMoves(board, position, -1, 1, moves, false);
-        calculateMoves(board, position, 1, -1, moves, false);
+    private static final int[] KINGSIDE_EMPTY = {6, 7};
+    private static final int[] QUEENSIDE_EMPTY = {2, 3, 4};
+    private static final int[] KINGSIDE_CROSSED = {6, 7};
+    private static final int[] QUEENSIDE_CROSSED = {3, 4};
+    private static final int[] NONE = {};
 
-        addCastleMoves(board, position, moves);
+    @Override
+    public void moves(ChessBoard board, ChessPosition position, MoveList moves) {
+        var from = ChessBoard.square(position);
+        addMoves(board, from, Attacks.king(from), moves);
 
-        return moves;
+        addCastleMoves(board, board.getPiece(from).getTeamColor(), from, false, moves);
     }
 
-
-    void addCastleMoves(ChessBoard board, ChessPosition pos, Collection<ChessMove> moves) {
-        var king = board.getPiece(pos);
-        var color = king.getTeamColor();
+    /**
+     * Appends the castling moves that the team's castling rights, rooks and empty squares allow
+     * its king on the square. With {@code safe}, the squares the king crosses must not be
+     * attacked either; whether the king is in check is left to the caller.
+     */
+    static void addCastleMoves(ChessBoard board, ChessGame.TeamColor color, int king, boolean safe, MoveList moves) {
         var teamRow = color == ChessGame.TeamColor.BLACK ? 8 : 1;
+        if (king != ChessBoard.square(teamRow, 5)) {
+            return;
+        }
+        var rights = board.castlingRights() >> (color == ChessGame.TeamColor.BLACK ? 2 : 0);
+        if ((rights & ChessBoard.WHITE_KINGSIDE) != 0
+                && canCastle(board, color, teamRow, 8, KINGSIDE_EMPTY, safe ? KINGSIDE_CROSSED : NONE)) {
+            moves.add(PackedMove.encode(king, ChessBoard.square(teamRow, 7), null, PackedMove.CASTLE));
+        }
+        if ((rights & ChessBoard.WHITE_QUEENSIDE) != 0
+                && canCastle(board, color, teamRow, 1, QUEENSIDE_EMPTY, safe ? QUEENSIDE_CROSSED : NONE)) {
+            moves.add(PackedMove.encode(king, ChessBoard.square(teamRow, 3), null, PackedMove.CASTLE));
+        }
+    }
 
-        var kingPos = new ChessPosition(teamRow, 5);
-        if (king.equals(board.getPiece(kingPos)) && board.isOriginalPosition(kingPos)) {
-            if (board.isOriginalPosition(new ChessPosition(teamRow, 8)) &&
-                    board.isSquareEmpty(teamRow, 6) &&
-                    board.isSquareEmpty(teamRow, 7)) {
-                moves.add(new ChessMove(pos, new ChessPosition(teamRow, 7), null));
+    private static boolean canCastle(ChessBoard board, ChessGame.TeamColor color, int row, int rookColumn,
+                                     int[] emptyColumns, int[] crossedColumns) {
+        if ((board.pieces(color, ChessPiece.PieceType.ROOK) & (1L << ChessBoard.square(row, rookColumn))) == 0) {
+            return false;
+        }
+        for (var column : emptyColumns) {
+            if (!board.isSquareEmpty(row, column)) {
+                return false;
             }
-            if (board.isOriginalPosition(new ChessPosition(teamRow, 1)) &&
-                    board.isSquareEmpty(teamRow, 2) &&
-                    board.isSquareEmpty(teamRow, 3) &&
-                    board.isSquareEmpty(teamRow, 4)) {
-                moves.add(new ChessMove(pos, new ChessPosition(teamRow, 3), null));
+        }
+        for (var column : crossedColumns) {
+            if (Attacks.isAttacked(board, ChessBoard.square(row, column), color.opponent(), board.occupied())) {
+                return false;
             }
         }
+        return true;
     }
-
 }
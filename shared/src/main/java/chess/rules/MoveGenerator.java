@@ -0,0 +1,160 @@
+package chess.rules;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.util.Collection;
+
+import static chess.ChessPiece.PieceType.*;
+
+/**
+ * Generates only legal moves. Pinned pieces and the squares that resolve a check are computed
+ * once per position, so no candidate move has to be played out to test whether it exposes the king.
+ */
+public class MoveGenerator {
+    /**
+     * Adds every legal move for the team to the collection.
+     */
+    public static void legalMoves(ChessBoard board, ChessGame.TeamColor color, Collection<ChessMove> moves) {
+        legalMoves(board, color, ~0L, moves);
+    }
+
+    /**
+     * Adds the legal moves for the team's pieces that stand on the given squares.
+     *
+     * @param fromMask bitboard of the squares to generate moves from.
+     */
+    public static void legalMoves(ChessBoard board, ChessGame.TeamColor color, long fromMask, Collection<ChessMove> moves) {
+        var list = new MoveList();
+        legalMoves(board, color, fromMask, list);
+        list.addTo(moves);
+    }
+
+    /**
+     * Appends every legal move for the team to the list as {@link PackedMove packed} moves.
+     */
+    public static void legalMoves(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        legalMoves(board, color, ~0L, moves);
+    }
+
+    /**
+     * Appends the legal moves for the team's pieces that stand on the given squares.
+     *
+     * @param fromMask bitboard of the squares to generate moves from.
+     */
+    public static void legalMoves(ChessBoard board, ChessGame.TeamColor color, long fromMask, MoveList moves) {
+        var enemy = color.opponent();
+        var own = board.pieces(color);
+        var occupied = board.occupied();
+        var kings = board.pieces(color, KING);
+        var king = kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+
+        var checkMask = ~0L;
+        var pinned = 0L;
+        if (king >= 0) {
+            var checkers = Attacks.attackersTo(board, king, enemy, occupied);
+            if ((kings & fromMask) != 0) {
+                addKingMoves(board, color, king, checkers == 0, moves);
+            }
+            if (Long.bitCount(checkers) > 1) {
+                return;
+            }
+            if (checkers != 0) {
+                checkMask = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+            }
+            pinned = pinnedPieces(board, color, king);
+        }
+
+        var targets = ~own & checkMask;
+        for (var remaining = own & ~kings & fromMask; remaining != 0; remaining &= remaining - 1) {
+            var from = Long.numberOfTrailingZeros(remaining);
+            var allowed = targets;
+            if ((pinned & (1L << from)) != 0) {
+                allowed &= Attacks.line(king, from);
+            }
+
+            var type = board.getPiece(from).getPieceType();
+            switch (type) {
+                case PAWN -> PawnMovementRule.addPawnMoves(board, from, PawnMovementRule.targets(board, color, from) & allowed, moves);
+                case KNIGHT -> addMoves(board, from, Attacks.knight(from) & allowed, moves);
+                case BISHOP -> addMoves(board, from, Attacks.bishop(from, occupied) & allowed, moves);
+                case ROOK -> addMoves(board, from, Attacks.rook(from, occupied) & allowed, moves);
+                case QUEEN -> addMoves(board, from, Attacks.queen(from, occupied) & allowed, moves);
+                default -> {
+                }
+            }
+        }
+
+        addEnPassantMoves(board, color, king, fromMask, moves);
+    }
+
+    /**
+     * @return the team's pieces that are the only blocker between their king and an enemy slider.
+     */
+    private static long pinnedPieces(ChessBoard board, ChessGame.TeamColor color, int king) {
+        var enemy = color.opponent();
+        var queens = board.pieces(enemy, QUEEN);
+        var snipers = (Attacks.rook(king, 0) & (board.pieces(enemy, ROOK) | queens))
+                | (Attacks.bishop(king, 0) & (board.pieces(enemy, BISHOP) | queens));
+
+        var pinned = 0L;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            var blockers = Attacks.between(king, Long.numberOfTrailingZeros(snipers)) & board.occupied();
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & board.pieces(color);
+            }
+        }
+        return pinned;
+    }
+
+    private static void addKingMoves(ChessBoard board, ChessGame.TeamColor color, int king, boolean notInCheck, MoveList moves) {
+        var enemy = color.opponent();
+        var occupied = board.occupied() & ~(1L << king);
+        for (var targets = Attacks.king(king) & ~board.pieces(color); targets != 0; targets &= targets - 1) {
+            var to = Long.numberOfTrailingZeros(targets);
+            if (!Attacks.isAttacked(board, to, enemy, occupied)) {
+                moves.add(PackedMove.encode(king, to, null, captureFlag(board, to)));
+            }
+        }
+
+        if (notInCheck) {
+            KingMovementRule.addCastleMoves(board, color, king, true, moves);
+        }
+    }
+
+    /**
+     * En passant removes two pawns from the capturing rank, so it can uncover the king where no
+     * pin was found. Each candidate is tested against the occupancy after the capture, without
+     * touching the board. The position allows at most two candidates.
+     */
+    private static void addEnPassantMoves(ChessBoard board, ChessGame.TeamColor color, int king, long fromMask, MoveList moves) {
+        var attackers = PawnMovementRule.enPassantAttackers(board, color) & fromMask;
+        if (attackers == 0) {
+            return;
+        }
+        var target = board.enPassantSquare();
+        var captured = 1L << (target ^ 8);
+        for (; attackers != 0; attackers &= attackers - 1) {
+            var from = Long.numberOfTrailingZeros(attackers);
+            var occupied = (board.occupied() & ~(1L << from) & ~captured) | (1L << target);
+            if (king < 0 || (Attacks.attackersTo(board, king, color.opponent(), occupied) & ~captured) == 0) {
+                moves.add(PackedMove.encode(from, target, null, PackedMove.CAPTURE | PackedMove.EN_PASSANT));
+            }
+        }
+    }
+
+    private static void addMoves(ChessBoard board, int from, long targets, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            var to = Long.numberOfTrailingZeros(targets);
+            moves.add(PackedMove.encode(from, to, null, captureFlag(board, to)));
+        }
+    }
+
+    private static int captureFlag(ChessBoard board, int to) {
+        return (board.occupied() & (1L << to)) != 0 ? PackedMove.CAPTURE : 0;
+    }
+}
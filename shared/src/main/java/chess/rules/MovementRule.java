@@ -3,29 +3,37 @@ package chess.rules;
 import chess.ChessBoard;
 import chess.ChessMove;
 import chess.ChessPosition;
+import chess.MoveList;
+import chess.PackedMove;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 public abstract class MovementRule {
 
-    protected void calculateMoves(ChessBoard board, ChessPosition pos, int rowInc, int colInc, Collection<ChessMove> moves, boolean allowDistance) {
-        var pieceColor = board.getPiece(pos).getTeamColor();
-        int row = pos.getRow() + rowInc;
-        int col = pos.getColumn() + colInc;
-        while (row > 0 && col > 0 && row < 9 && col < 9) {
-            var newPos = new ChessPosition(row, col);
-            var pieceAt = board.getPiece(newPos);
-            if (pieceAt == null || pieceAt.getTeamColor() != pieceColor) {
-                moves.add(new ChessMove(pos, newPos, null));
-                row += rowInc;
-                col += colInc;
-            }
-
-            if (!allowDistance || pieceAt != null) {
-                break;
-            }
+    /**
+     * Appends a move to each attacked square not held by the piece's own team, flagging captures.
+     */
+    protected void addMoves(ChessBoard board, int from, long attacks, MoveList moves) {
+        var occupied = board.occupied();
+        var targets = attacks & ~board.pieces(board.getPiece(from).getTeamColor());
+        for (; targets != 0; targets &= targets - 1) {
+            var to = Long.numberOfTrailingZeros(targets);
+            moves.add(PackedMove.encode(from, to, null, (occupied & (1L << to)) != 0 ? PackedMove.CAPTURE : 0));
         }
     }
 
-    public abstract Collection<ChessMove> moves(ChessBoard board, ChessPosition position);
+    /**
+     * Appends the packed moves for the piece at the position to the list. The moves follow
+     * the piece's movement pattern but may leave the king in check.
+     */
+    public abstract void moves(ChessBoard board, ChessPosition position, MoveList moves);
+
+    public Collection<ChessMove> moves(ChessBoard board, ChessPosition position) {
+        var list = new MoveList(32);
+        moves(board, position, list);
+        var moves = new ArrayList<ChessMove>(list.size());
+        list.addTo(moves);
+        return moves;
+    }
 }
@@ -2,78 +2,69 @@ package chess.rules;
 
 import chess.*;
 
-import java.util.Collection;
-import java.util.HashSet;
-
 public class PawnMovementRule extends MovementRule {
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT};
+
     @Override
-    public Collection<ChessMove> moves(ChessBoard board, ChessPosition pos) {
+    public void moves(ChessBoard board, ChessPosition pos, MoveList moves) {
         var pieceColor = board.getPiece(pos).getTeamColor();
+        var from = ChessBoard.square(pos);
 
-        var moves = new HashSet<ChessMove>();
-        var direction = (pieceColor == ChessGame.TeamColor.WHITE ? 1 : -1);
-
-        calculateMoves(board, pos, direction, 0, moves, false);
-        calculateMoves(board, pos, direction, -1, moves, true);
-        calculateMoves(board, pos, direction, 1, moves, true);
-        addEnPassantMoves(board, pos, moves);
-
-        if (pieceColor == ChessGame.TeamColor.WHITE && pos.getRow() == 2 || pieceColor == ChessGame.TeamColor.BLACK && pos.getRow() == 7) {
-            if (board.isSquareEmpty(pos.getRow() + direction, pos.getColumn()) && board.isSquareEmpty(pos.getRow() + (direction * 2), pos.getColumn())) {
-                moves.add(new ChessMove(pos, new ChessPosition(pos.getRow() + (direction * 2), pos.getColumn()), null));
-            }
+        addPawnMoves(board, from, targets(board, pieceColor, from), moves);
+        if ((enPassantAttackers(board, pieceColor) & (1L << from)) != 0) {
+            moves.add(PackedMove.encode(from, board.enPassantSquare(), null, PackedMove.CAPTURE | PackedMove.EN_PASSANT));
         }
-
-        return moves;
     }
 
-    @Override
-    protected void calculateMoves(ChessBoard board, ChessPosition pos, int rowInc, int colInc, Collection<ChessMove> moves, boolean attack) {
-        var pieceColor = board.getPiece(pos).getTeamColor();
-        int row = pos.getRow() + rowInc;
-        int col = pos.getColumn() + colInc;
-        if (row > 0 && col > 0 && row < 9 && col < 9) {
-            var newPos = new ChessPosition(row, col);
-            var pieceAt = board.getPiece(newPos);
-            if ((attack && pieceAt != null && pieceAt.getTeamColor() != pieceColor)
-                    || (!attack && pieceAt == null)) {
-                addMoveWithPossiblePromotion(pos, newPos, moves);
+    /**
+     * @return the squares the team's pawn on the square can push or capture to, other than
+     * by en passant.
+     */
+    static long targets(ChessBoard board, ChessGame.TeamColor color, int from) {
+        var empty = ~board.occupied();
+        var forward = color == ChessGame.TeamColor.WHITE ? 8 : -8;
+        var startRow = color == ChessGame.TeamColor.WHITE ? 1 : 6;
+
+        var targets = Attacks.pawn(color, from) & board.pieces(color.opponent());
+        var single = from + forward;
+        if (single >= 0 && single < 64 && (empty & (1L << single)) != 0) {
+            targets |= 1L << single;
+            if ((from >>> 3) == startRow && (empty & (1L << (single + forward))) != 0) {
+                targets |= 1L << (single + forward);
             }
         }
+        return targets;
     }
 
-    private void addMoveWithPossiblePromotion(ChessPosition pos, ChessPosition newPos, Collection<ChessMove> moves) {
-        if (newPos.getRow() == 1 || newPos.getRow() == 8) {
-            moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.QUEEN));
-            moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.BISHOP));
-            moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.ROOK));
-            moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.KNIGHT));
-        } else {
-            moves.add(new ChessMove(pos, newPos, null));
+    /**
+     * Appends a move to each target of the pawn on the square, one for each promotion piece
+     * on the last rank, flagging captures and double pushes.
+     */
+    static void addPawnMoves(ChessBoard board, int from, long targets, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            var to = Long.numberOfTrailingZeros(targets);
+            var flags = ((board.occupied() & (1L << to)) != 0 ? PackedMove.CAPTURE : 0)
+                    | (Math.abs(to - from) == 16 ? PackedMove.DOUBLE_PUSH : 0);
+            if (to < 8 || to >= 56) {
+                for (var promotion : PROMOTIONS) {
+                    moves.add(PackedMove.encode(from, to, promotion, flags));
+                }
+            } else {
+                moves.add(PackedMove.encode(from, to, null, flags));
+            }
         }
     }
 
-    private void addEnPassantMoves(ChessBoard board, ChessPosition pos, HashSet<ChessMove> moves) {
-        var pawn = board.getPiece(pos);
-        var color = pawn.getTeamColor();
-        var passantRow = color == ChessGame.TeamColor.BLACK ? 4 : 5;
-        var startRow = color == ChessGame.TeamColor.BLACK ? 2 : 7;
-        var attackRow = color == ChessGame.TeamColor.BLACK ? 3 : 6;
-
-        addPassant(pos.getColumn(), pos.getColumn() + 1, passantRow, startRow, attackRow, board, color, moves);
-        addPassant(pos.getColumn(), pos.getColumn() - 1, passantRow, startRow, attackRow, board, color, moves);
-    }
-
-    private void addPassant(int column, int passantColumn, int passantRow, int startRow, int attackRow, ChessBoard board, ChessGame.TeamColor color, HashSet<ChessMove> moves) {
-        if (passantColumn >= 1 && passantColumn <= 8) {
-            var passantMove = new ChessMove(new ChessPosition(startRow, passantColumn), new ChessPosition(passantRow, passantColumn), null);
-            var candidate = board.getPiece(passantMove.getEndPosition());
-            if (candidate != null && candidate.getPieceType() == ChessPiece.PieceType.PAWN && candidate.getTeamColor() != color) {
-                var lastMove = board.getLastMove();
-                if (passantMove.equals(lastMove)) {
-                    moves.add(new ChessMove(new ChessPosition(passantRow, column), new ChessPosition(attackRow, passantColumn), null));
-                }
-            }
+    /**
+     * @return the team's pawns that can capture en passant, whether or not it leaves their
+     * king in check.
+     */
+    static long enPassantAttackers(ChessBoard board, ChessGame.TeamColor color) {
+        var target = board.enPassantSquare();
+        if (target < 0 || (board.pieces(color.opponent(), ChessPiece.PieceType.PAWN) & (1L << (target ^ 8))) == 0) {
+            return 0;
         }
+        return Attacks.pawn(color.opponent(), target) & board.pieces(color, ChessPiece.PieceType.PAWN);
     }
-}
\ No newline at end of file
+}
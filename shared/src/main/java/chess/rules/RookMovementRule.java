@@ -1,20 +1,13 @@
 package chess.rules;
 
 import chess.ChessBoard;
-import chess.ChessMove;
 import chess.ChessPosition;
-
-import java.util.Collection;
-import java.util.HashSet;
+import chess.MoveList;
 
 public class RookMovementRule extends MovementRule {
     @Override
-    public Collection<ChessMove> moves(ChessBoard board, ChessPosition position) {
-        var moves = new HashSet<ChessMove>();
-        calculateMoves(board, position, -1, 0, moves, true);
-        calculateMoves(board, position, 1, 0, moves, true);
-        calculateMoves(board, position, 0, 1, moves, true);
-        calculateMoves(board, position, 0, -1, moves, true);
-        return moves;
+    public void moves(ChessBoard board, ChessPosition position, MoveList moves) {
+        var from = ChessBoard.square(position);
+        addMoves(board, from, Attacks.rook(from, board.occupied()), moves);
     }
-}
\ No newline at end of file
+}
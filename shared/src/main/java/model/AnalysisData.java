@@ -0,0 +1,22 @@
+package model;
+
+import com.google.gson.Gson;
+
+import java.util.List;
+
+/**
+ * The engine's assessment of a position. Moves are in coordinate notation, such as "e2e4".
+ *
+ * @param score     centipawns from the point of view of the team to move
+ * @param pv        the principal variation, starting with the best move
+ * @param book      true if the move came from the opening book rather than a search
+ * @param tablebase true if the answer came from the endgame tables rather than a search
+ */
+public record AnalysisData(String fen, int depth, String bestMove, int score, boolean mate, List<String> pv, long nodes,
+                           boolean book, boolean tablebase) {
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+}
@@ -1,7 +1,7 @@
 package model;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessJson;
 
 /**
  * Represents the serialization of a game. This includes who the players are, and the game itself.
@@ -27,6 +27,10 @@ public record GameData(int gameID, String whiteUsername, String blackUsername, S
         return new GameData(this.gameID, this.whiteUsername, userName, this.gameName, this.game, this.state);
     }
 
+    public GameData setGame(ChessGame game) {
+        return new GameData(this.gameID, this.whiteUsername, this.blackUsername, this.gameName, game, this.state);
+    }
+
     public GameData clearBoard() {
         return new GameData(this.gameID, this.whiteUsername, this.blackUsername, this.gameName, null, this.state);
     }
@@ -37,6 +41,6 @@ public record GameData(int gameID, String whiteUsername, String blackUsername, S
 
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return ChessJson.gson().toJson(this);
     }
 }
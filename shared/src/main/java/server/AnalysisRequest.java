@@ -0,0 +1,8 @@
+package server;
+
+/**
+ * Body of [POST] /analysis. Either fen, or gameID with an optional ply, names the position.
+ * Without a ply the game's current position is analyzed.
+ */
+public record AnalysisRequest(String fen, Integer gameID, Integer ply, Integer depth) {
+}
@@ -0,0 +1,9 @@
+package server;
+
+import chess.ChessGame;
+
+/**
+ * Body of [POST] /game. When botColor is set the server's bot takes that seat.
+ */
+public record CreateGameRequest(String gameName, ChessGame.TeamColor botColor) {
+}
@@ -0,0 +1,85 @@
+package util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe least recently used cache bounded by the total weight of its values rather
+ * than by entry count, so a few large values cannot crowd out memory that many small ones
+ * would use better.
+ */
+public class BoundedCache<K, V> {
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxWeight the total weight the cache may hold
+     * @param weigher   the weight of a value, such as its approximate size in bytes
+     */
+    public BoundedCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @return the cached value, or null if there is none.
+     */
+    public synchronized V get(K key) {
+        var value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Adds a value, evicting the least recently used entries until the cache fits. A value
+     * heavier than the whole cache is not stored.
+     */
+    public synchronized void put(K key, V value) {
+        var valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        var old = entries.put(key, value);
+        if (old != null) {
+            weight -= weigher.applyAsLong(old);
+        }
+        weight += valueWeight;
+
+        var iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+            weight -= weigher.applyAsLong(eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+}
@@ -1,12 +1,29 @@
 package webSocketMessages.serverMessages;
 
+import chess.ChessJson;
+import chess.GameSnapshot;
 import model.GameData;
 
 public class LoadMessage extends SerializableServerMessage {
     public GameData game;
 
+    // The game's current version, written in place of the game so that a move made while the
+    // message is serialized cannot leave it half made.
+    private final transient GameSnapshot version;
+
     public LoadMessage(GameData gameData) {
         super(ServerMessageType.LOAD_GAME);
-        this.game = gameData;
+        this.game = gameData.clearBoard();
+        this.version = gameData.game() == null ? null : gameData.game().snapshot();
+    }
+
+    @Override
+    public String toString() {
+        var gson = ChessJson.gson();
+        var json = gson.toJsonTree(this).getAsJsonObject();
+        if (version != null) {
+            json.getAsJsonObject("game").add("game", gson.toJsonTree(version));
+        }
+        return gson.toJson(json);
     }
 }
@@ -1,6 +1,6 @@
 package webSocketMessages.serverMessages;
 
-import com.google.gson.Gson;
+import chess.ChessJson;
 
 public class SerializableServerMessage extends ServerMessage {
 
@@ -11,6 +11,6 @@ public class SerializableServerMessage extends ServerMessage {
 
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return ChessJson.gson().toJson(this);
     }
 }
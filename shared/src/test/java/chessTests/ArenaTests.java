@@ -0,0 +1,29 @@
+package chessTests;
+
+import chess.Fen;
+import chess.engine.Arena;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class ArenaTests {
+
+    @Test
+    public void playsBothColors() throws Exception {
+        try (var engine = new Engine(2, 0, 4)) {
+            var player = new Arena.Player("engine", engine, SearchLimits.depth(2));
+            var openings = List.of("k7/8/1K6/8/8/8/7Q/8 w - - 0 1", Fen.START);
+            var result = new Arena(2, 4).play(player, player, openings, 1);
+
+            // White mates at once from the first opening, and the second is cut off at the ply limit.
+            Assertions.assertEquals(1, result.wins());
+            Assertions.assertEquals(1, result.losses());
+            Assertions.assertEquals(2, result.draws());
+            Assertions.assertEquals(10, result.moves());
+            Assertions.assertTrue(result.nodes() > 0);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package chessTests;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+public class BoardHistoryTests {
+    @Test
+    public void historyViewFollowsMoves() throws Exception {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var history = board.getHistory();
+        Assertions.assertNull(board.getLastMove());
+
+        var knights = new String[]{"g1f3", "g8f6", "f3g1", "f6g8"};
+        var made = new ArrayList<ChessMove>();
+        for (var ply = 0; ply < 100; ply++) {
+            var move = new ChessMove(knights[ply % knights.length]);
+            board.movePiece(move);
+            made.add(move);
+        }
+        Assertions.assertEquals(made, history);
+        Assertions.assertEquals(new ChessMove("f6g8"), board.getLastMove());
+
+        var copy = new ChessBoard(board);
+        board.makeMove(new ChessMove("e2e4"));
+        Assertions.assertEquals(101, history.size());
+        Assertions.assertEquals(100, copy.getHistory().size());
+        board.unmakeMove();
+        Assertions.assertEquals(made, history);
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> history.add(new ChessMove("e2e4")));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> history.get(100));
+    }
+
+    @Test
+    public void legalityLeavesBoardAlone() throws Exception {
+        var game = Fen.parse("4k3/4r3/8/8/8/8/4B3/4K2R w K - 0 1");
+        var board = game.getBoard();
+        var key = game.positionKey();
+        Assertions.assertFalse(board.isMoveLegal(new ChessMove("e2d3")));
+        Assertions.assertTrue(board.isMoveLegal(new ChessMove("e1g1")));
+        Assertions.assertTrue(board.isMoveLegal(new ChessMove("e7e2")));
+        Assertions.assertFalse(board.isMoveLegal(new ChessMove("e1e2")));
+        Assertions.assertEquals(key, game.positionKey());
+        Assertions.assertTrue(board.getHistory().isEmpty());
+    }
+
+    @Test
+    public void promotionsArePacked() throws Exception {
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(7, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.movePiece(new ChessMove("a7a8n"));
+        Assertions.assertEquals(new ChessMove("a7a8n"), board.getLastMove());
+        Assertions.assertFalse(board.isOriginalPosition(new ChessPosition(7, 1)));
+        Assertions.assertTrue(board.isOriginalPosition(new ChessPosition(8, 1)));
+    }
+}
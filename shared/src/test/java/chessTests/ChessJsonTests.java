@@ -0,0 +1,91 @@
+package chessTests;
+
+import chess.ChessGame;
+import chess.ChessJson;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import webSocketMessages.serverMessages.LoadMessage;
+import webSocketMessages.userCommands.MoveCommand;
+
+public class ChessJsonTests {
+    @Test
+    public void gameRoundTrip() throws Exception {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        for (var move : new String[]{"e2e4", "d7d5", "e4d5", "g8f6", "f1b5", "c7c6", "g1f3", "c6b5"}) {
+            game.play(new ChessMove(move));
+        }
+
+        var json = game.toString();
+        Assertions.assertEquals("{\"fen\":\"" + Fen.format(game) + "\",\"moves\":[\"e2e4\",\"d7d5\",\"e4d5\",\"g8f6\",\"f1b5\",\"c7c6\",\"g1f3\",\"c6b5\"],\"repetitions\":[]}", json);
+
+        var decoded = ChessGame.create(json);
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(game.getBoard().getHistory(), decoded.getBoard().getHistory());
+        Assertions.assertEquals(game.positionKey(), decoded.positionKey());
+        decoded.play(new ChessMove("e1g1"));
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK), decoded.getBoard().getPiece(new ChessPosition(1, 6)));
+    }
+
+    @Test
+    public void movesAndPositionsAreStrings() throws Exception {
+        var gson = ChessJson.gson();
+        var promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT);
+        Assertions.assertEquals("a7b8n", promotion.notation());
+        Assertions.assertSame(ChessMove.parse("a7b8n"), ChessMove.parse(promotion.notation()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessMove.parse("a7b8k"));
+        Assertions.assertThrows(Exception.class, () -> new ChessMove("a7b8k"));
+        Assertions.assertThrows(Exception.class, () -> new ChessMove("i9a1"));
+        Assertions.assertEquals(ChessMove.parse("e2e4"), new ChessMove("E2E4"));
+        Assertions.assertEquals("\"a7b8n\"", gson.toJson(promotion));
+        Assertions.assertEquals("\"h8\"", gson.toJson(new ChessPosition(8, 8)));
+        Assertions.assertEquals(promotion, gson.fromJson("\"a7b8n\"", ChessMove.class));
+        Assertions.assertEquals(new ChessPosition(4, 5), gson.fromJson("\"e4\"", ChessPosition.class));
+        Assertions.assertThrows(RuntimeException.class, () -> gson.fromJson("\"i9\"", ChessPosition.class));
+
+        var game = Fen.parse(Fen.START);
+        game.makeMove(new ChessMove("e2e4"));
+        var message = new LoadMessage(new model.GameData(1, "a", "b", "game", game, model.GameData.State.UNDECIDED)).toString();
+        game.makeMove(new ChessMove("e7e5"));
+        Assertions.assertTrue(message.contains("\"moves\":[\"e2e4\"]"));
+        Assertions.assertEquals(Fen.format(game.atPly(1)), Fen.format(gson.fromJson(message, LoadMessage.class).game.game()));
+    }
+
+    @Test
+    public void repetitionsAreKept() throws Exception {
+        var game = Fen.parse(Fen.START);
+        game.makeMove(new ChessMove("e2e4"));
+        game.makeMove(new ChessMove("e7e5"));
+        for (var move : new String[]{"g1f3", "g8f6", "f3g1", "f6g8", "g1f3", "g8f6"}) {
+            game.makeMove(new ChessMove(move));
+        }
+        Assertions.assertEquals(2, game.getBoard().repetitions());
+
+        var read = ChessGame.create(game.toString());
+        Assertions.assertEquals(2, read.getBoard().repetitions());
+        var copy = game.snapshot().toGame();
+        Assertions.assertEquals(2, copy.getBoard().repetitions());
+        for (var replayed : new ChessGame[]{read, copy}) {
+            replayed.makeMove(new ChessMove("f3g1"));
+            replayed.makeMove(new ChessMove("f6g8"));
+            Assertions.assertEquals(3, replayed.getBoard().repetitions());
+        }
+    }
+
+    @Test
+    public void readsReflectiveForms() {
+        var gson = ChessJson.gson();
+        var command = gson.fromJson("{\"commandType\":\"MAKE_MOVE\",\"gameID\":3,"
+                + "\"move\":{\"start\":{\"row\":2,\"col\":5},\"end\":{\"row\":4,\"col\":5},\"promotionPiece\":null}}", MoveCommand.class);
+        Assertions.assertEquals(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null), command.move);
+
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        var reflective = new com.google.gson.Gson().toJson(game);
+        Assertions.assertEquals(Fen.START, Fen.format(ChessGame.create(reflective)));
+    }
+}
@@ -0,0 +1,73 @@
+package chessTests;
+
+import chess.ChessMove;
+import chess.Fen;
+import chess.engine.Engine;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class EngineTests {
+
+    @Test
+    public void findsMateInOne() throws Exception {
+        var game = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        var result = new Search(new TranspositionTable(1)).search(game, SearchLimits.depth(4));
+
+        Assertions.assertEquals(new ChessMove("a1a8"), result.move());
+        Assertions.assertTrue(result.isMate());
+    }
+
+    @Test
+    public void capturesHangingQueen() throws Exception {
+        var game = Fen.parse("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1");
+        var result = new Search(new TranspositionTable(1)).search(game, SearchLimits.depth(3));
+
+        Assertions.assertEquals(new ChessMove("d1d5"), result.move());
+    }
+
+    @Test
+    public void respectsTimeLimit() throws Exception {
+        try (var engine = new Engine(1, 4)) {
+            var result = engine.think(Fen.parse(Fen.START), SearchLimits.time(200)).get();
+
+            Assertions.assertNotNull(result.move());
+            Assertions.assertTrue(result.millis() < 1000, "took " + result.millis() + "ms");
+        }
+    }
+
+    @Test
+    public void lazySmpFindsMate() throws Exception {
+        try (var engine = new Engine(1, 3, 4)) {
+            var game = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+            var result = engine.search(game, SearchLimits.depth(5).withThreads(4));
+
+            Assertions.assertEquals(new ChessMove("a1a8"), result.move());
+            Assertions.assertTrue(result.isMate());
+        }
+    }
+
+    @Test
+    public void noMovesWhenMated() {
+        var game = Fen.parse("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        var result = new Search(new TranspositionTable(1)).search(game, SearchLimits.depth(2));
+
+        Assertions.assertNull(result.move());
+        Assertions.assertTrue(result.isMate());
+    }
+
+    @Test
+    public void tableRoundTrip() {
+        var table = new TranspositionTable(1);
+        table.store(0x1234L, 0x1FF, -250, 7, TranspositionTable.LOWER);
+        var entry = table.probe(0x1234L);
+
+        Assertions.assertEquals(0x1FF, TranspositionTable.move(entry));
+        Assertions.assertEquals(-250, TranspositionTable.score(entry));
+        Assertions.assertEquals(7, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        Assertions.assertEquals(0, table.probe(0x1234L + table.capacity()));
+    }
+}
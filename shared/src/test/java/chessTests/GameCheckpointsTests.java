@@ -0,0 +1,62 @@
+package chessTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.GameCheckpoints;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class GameCheckpointsTests {
+    @Test
+    public void everyPlyAfterLoading() throws Exception {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        var fens = new ArrayList<String>();
+        fens.add(Fen.format(game));
+        var random = new Random(7);
+        for (var ply = 0; ply < 70; ply++) {
+            var moves = new ArrayList<>(game.allValidMoves(game.getTeamTurn()));
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            fens.add(Fen.format(game));
+        }
+
+        // A loaded game's snapshot chain starts at its last move, so earlier plies come from checkpoints.
+        var loaded = ChessGame.create(game.toString());
+        for (var ply = fens.size() - 1; ply >= 0; ply--) {
+            Assertions.assertEquals(fens.get(ply), Fen.format(loaded.atPly(ply)), "ply " + ply);
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> loaded.atPly(fens.size()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> loaded.atPly(-1));
+    }
+
+    @Test
+    public void extendKeepsCheckpoints() throws Exception {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        var knights = new String[]{"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (var ply = 0; ply < 40; ply++) {
+            game.makeMove(new ChessMove(knights[ply % knights.length]));
+        }
+        var checkpoints = GameCheckpoints.of(game.snapshot(), 8);
+        Assertions.assertEquals(40, checkpoints.ply());
+        Assertions.assertEquals(6, checkpoints.size());
+        Assertions.assertSame(checkpoints, checkpoints.extend(game.snapshot()));
+
+        game.makeMove(new ChessMove("e2e4"));
+        var extended = checkpoints.extend(game.snapshot());
+        Assertions.assertEquals(41, extended.ply());
+        Assertions.assertEquals(Fen.format(game), Fen.format(extended.at(41)));
+
+        // Another game's history is not a continuation, so its checkpoints are rebuilt.
+        var other = Fen.parse(Fen.START);
+        other.makeMove(new ChessMove("d2d4"));
+        Assertions.assertEquals(Fen.format(other), Fen.format(checkpoints.extend(other.snapshot()).at(1)));
+    }
+}
@@ -0,0 +1,122 @@
+package chessTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.GameCodec;
+import chess.MoveOutcome;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class GameCodecTests {
+    @Test
+    public void roundTrip() throws Exception {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        for (var move : new String[]{"e2e4", "d7d5", "g1f3", "g8f6", "f1e2", "b8c6", "e1g1", "d5d4", "c2c4"}) {
+            game.play(new ChessMove(move));
+        }
+
+        var encoded = GameCodec.encode(game);
+        Assertions.assertEquals(33 + 9 * 2, encoded.length);
+        Assertions.assertTrue(encoded.length * 2 < game.toString().length());
+
+        var decoded = GameCodec.decode(encoded);
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(Fen.format(game), Fen.format(decoded));
+        Assertions.assertEquals(game.getBoard().getHistory(), decoded.getBoard().getHistory());
+        Assertions.assertTrue(decoded.play(new ChessMove("d4c3")).isCapture());
+    }
+
+    @Test
+    public void keepsRepetitions() throws Exception {
+        var game = Fen.parse(Fen.START);
+        for (var move : new String[]{"g1f3", "g8f6", "f3g1", "f6g8", "g1f3", "g8f6"}) {
+            game.play(new ChessMove(move));
+        }
+        var encoded = GameCodec.encode(game);
+        Assertions.assertEquals(33 + 6 * 2 + 6 * 8, encoded.length);
+
+        var decoded = GameCodec.decode(encoded);
+        Assertions.assertEquals(2, decoded.getBoard().repetitions());
+        decoded.play(new ChessMove("f3g1"));
+        Assertions.assertEquals(MoveOutcome.Status.REPETITION, decoded.play(new ChessMove("f6g8")).status());
+
+        // The first version has no repetition keys, so they come from replaying the history.
+        var first = Arrays.copyOf(encoded, 33 + 6 * 2 - 1);
+        first[1] = 1;
+        Assertions.assertEquals(2, GameCodec.decode(first).getBoard().repetitions());
+    }
+
+    @Test
+    public void promotionsAndEmptyBoard() {
+        var game = Fen.parse("8/1P6/8/8/8/8/k6K/8 w - - 3 40");
+        var decoded = GameCodec.decode(GameCodec.encode(game));
+        Assertions.assertEquals(Fen.format(game), Fen.format(decoded));
+
+        var empty = new ChessGame();
+        Assertions.assertEquals(empty, GameCodec.decode(GameCodec.encode(empty)));
+    }
+
+    @Test
+    public void readsCurrentJson() throws Exception {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        game.play(new ChessMove("e2e4"));
+        var decoded = GameCodec.decode(game.toString().getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals(Fen.format(game), Fen.format(decoded));
+    }
+
+    @Test
+    public void readsOriginalJson() {
+        // 1. e4 e5 2. Ke2 as the first version of ChessBoard stored it.
+        var json = "{\"board\":{\"squares\":" + squares(new String[]{
+                "RNBQ.BNR", "PPPPKPPP", "........", "....P...", "....p...", "........", "pppp.ppp", "rnbqkbnr"})
+                + ",\"history\":[" + move(2, 5, 4, 5) + "," + move(7, 5, 5, 5) + "," + move(1, 5, 2, 5) + "]},\"turn\":\"BLACK\"}";
+
+        var game = GameCodec.decode(json.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 1 2", Fen.format(game));
+        Assertions.assertEquals(3, game.getBoard().getHistory().size());
+
+        // A history that does not lead to the squares keeps the squares.
+        var edited = json.replace("\"turn\":\"BLACK\"", "\"turn\":\"WHITE\"").replace(move(1, 5, 2, 5), move(1, 4, 2, 4));
+        var placed = GameCodec.decode(edited.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING), placed.getBoard().getPiece(new ChessPosition(2, 5)));
+        Assertions.assertEquals("kq", Fen.format(placed).split(" ")[2]);
+    }
+
+    private static String squares(String[] rows) {
+        var sb = new StringBuilder("[");
+        for (var row = 0; row < 8; row++) {
+            sb.append(row == 0 ? "[" : ",[");
+            for (var col = 0; col < 8; col++) {
+                var c = rows[row].charAt(col);
+                sb.append(col == 0 ? "" : ",");
+                if (c == '.') {
+                    sb.append("null");
+                } else {
+                    var type = switch (Character.toLowerCase(c)) {
+                        case 'k' -> "KING";
+                        case 'q' -> "QUEEN";
+                        case 'r' -> "ROOK";
+                        case 'b' -> "BISHOP";
+                        case 'n' -> "KNIGHT";
+                        default -> "PAWN";
+                    };
+                    sb.append(String.format("{\"color\":\"%s\",\"type\":\"%s\"}", Character.isUpperCase(c) ? "WHITE" : "BLACK", type));
+                }
+            }
+            sb.append("]");
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String move(int fromRow, int fromCol, int toRow, int toCol) {
+        return String.format("{\"start\":{\"row\":%d,\"col\":%d},\"end\":{\"row\":%d,\"col\":%d}}", fromRow, fromCol, toRow, toCol);
+    }
+}
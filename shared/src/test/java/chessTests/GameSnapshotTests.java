@@ -0,0 +1,60 @@
+package chessTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class GameSnapshotTests {
+    @Test
+    public void versionsSurviveLaterMoves() throws Exception {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        var start = game.snapshot();
+        game.play(new ChessMove("e2e4"));
+        var afterE4 = game.snapshot();
+        game.play(new ChessMove("e7e5"));
+        var afterE5 = game.snapshot();
+
+        Assertions.assertSame(afterE4, afterE5.previous());
+        Assertions.assertSame(start, afterE5.at(0));
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN), start.getPiece(new ChessPosition(2, 5)));
+        Assertions.assertNull(afterE4.getPiece(new ChessPosition(2, 5)));
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, afterE4.getTeamTurn());
+        Assertions.assertEquals(List.of(new ChessMove("e2e4"), new ChessMove("e7e5")), afterE5.history());
+        Assertions.assertEquals(game.positionKey(), afterE5.positionKey());
+    }
+
+    @Test
+    public void toGameContinuesTheChain() throws Exception {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        game.play(new ChessMove("g1f3"));
+        game.play(new ChessMove("g8f6"));
+        var earlier = game.snapshot().at(1);
+
+        var copy = earlier.toGame();
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - 1 1", Fen.format(copy));
+        copy.play(new ChessMove("b8c6"));
+        Assertions.assertSame(earlier, copy.snapshot().previous());
+        Assertions.assertEquals(2, game.snapshot().ply());
+    }
+
+    @Test
+    public void directChangesStartNewChain() {
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+        var before = game.snapshot();
+        game.getBoard().addPiece(new ChessPosition(4, 4), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+
+        var after = game.snapshot();
+        Assertions.assertNotSame(before, after);
+        Assertions.assertNull(after.previous());
+        Assertions.assertNull(before.getPiece(new ChessPosition(4, 4)));
+    }
+}
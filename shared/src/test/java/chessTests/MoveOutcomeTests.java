@@ -0,0 +1,100 @@
+package chessTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.MoveOutcome;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MoveOutcomeTests {
+
+    @Test
+    public void checkmate() throws Exception {
+        var game = Fen.parse("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2");
+        var outcome = game.play(new ChessMove("d8h4"));
+
+        Assertions.assertEquals(MoveOutcome.Status.CHECKMATE, outcome.status());
+        Assertions.assertTrue(outcome.isCheck());
+        Assertions.assertTrue(game.isInCheckmate(game.getTeamTurn()));
+    }
+
+    @Test
+    public void stalemate() throws Exception {
+        var game = Fen.parse("7k/8/5K2/8/8/8/8/6Q1 w - - 0 1");
+        var outcome = game.play(new ChessMove("g1g6"));
+
+        Assertions.assertEquals(MoveOutcome.Status.STALEMATE, outcome.status());
+        Assertions.assertFalse(outcome.isCheck());
+    }
+
+    @Test
+    public void enPassantCaptureAndPromotion() throws Exception {
+        var game = Fen.parse("4k3/1P6/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        var capture = game.play(new ChessMove("e5d6"));
+        Assertions.assertTrue(capture.isCapture());
+        Assertions.assertFalse(capture.isPromotion());
+
+        game.play(new ChessMove("e8d8"));
+        var promotion = game.play(new ChessMove("b7b8q"));
+        Assertions.assertTrue(promotion.isPromotion());
+        Assertions.assertEquals(MoveOutcome.Status.CHECK, promotion.status());
+    }
+
+    @Test
+    public void enPassantExposingKing() throws Exception {
+        var pinned = Fen.parse("8/8/8/K2pP2r/8/8/8/4k3 w - d6 0 1");
+        Assertions.assertThrows(InvalidMoveException.class, () -> pinned.play(new ChessMove("e5d6")));
+        Assertions.assertEquals("8/8/8/K2pP2r/8/8/8/4k3 w - d6 0 1", Fen.format(pinned));
+
+        var checked = Fen.parse("8/8/8/3pP3/4K3/8/8/4k3 w - d6 0 1");
+        Assertions.assertTrue(checked.play(new ChessMove("e5d6")).isCapture());
+    }
+
+    @Test
+    public void invalidMove() {
+        var game = Fen.parse(Fen.START);
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.play(new ChessMove("e2e5")));
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.play(new ChessMove("e7e5")));
+    }
+
+    @Test
+    public void threefoldRepetition() throws Exception {
+        var game = Fen.parse(Fen.START);
+        var knights = new String[]{"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (var move : knights) {
+            Assertions.assertEquals(MoveOutcome.Status.NORMAL, game.play(new ChessMove(move)).status());
+        }
+        Assertions.assertEquals(2, game.getBoard().repetitions());
+
+        // The count survives a round trip through the stored form.
+        game = ChessGame.create(game.toString());
+        for (var i = 0; i < knights.length - 1; i++) {
+            game.play(new ChessMove(knights[i]));
+        }
+        var outcome = game.play(new ChessMove(knights[3]));
+        Assertions.assertEquals(MoveOutcome.Status.REPETITION, outcome.status());
+        Assertions.assertTrue(outcome.isDraw());
+    }
+
+    @Test
+    public void fiftyMoveRule() throws Exception {
+        var game = Fen.parse("8/8/8/4k3/8/8/R7/4K3 w - - 99 80");
+        Assertions.assertEquals(MoveOutcome.Status.FIFTY_MOVES, game.play(new ChessMove("a2a3")).status());
+
+        game = Fen.parse("8/8/8/4k3/8/8/P7/4K3 w - - 99 80");
+        Assertions.assertEquals(MoveOutcome.Status.NORMAL, game.play(new ChessMove("a2a3")).status());
+        Assertions.assertEquals(0, game.getBoard().halfmoveClock());
+    }
+
+    @Test
+    public void insufficientMaterial() throws Exception {
+        var game = Fen.parse("8/8/8/4k3/8/8/3n4/4K3 w - - 0 1");
+        Assertions.assertEquals(MoveOutcome.Status.INSUFFICIENT_MATERIAL, game.play(new ChessMove("e1d2")).status());
+
+        Assertions.assertTrue(Fen.parse("8/8/8/4k3/8/2b5/3B4/4K3 w - - 0 1").getBoard().isInsufficientMaterial());
+        Assertions.assertFalse(Fen.parse("8/8/8/4k3/8/3b4/3B4/4K3 w - - 0 1").getBoard().isInsufficientMaterial());
+        Assertions.assertFalse(Fen.parse("8/8/8/4k3/8/2n5/3N4/4K3 w - - 0 1").getBoard().isInsufficientMaterial());
+    }
+}
@@ -0,0 +1,74 @@
+package chessTests;
+
+import chess.ChessMove;
+import chess.Fen;
+import chess.San;
+import chess.engine.OpeningBook;
+import chess.engine.OpeningBookBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class OpeningBookTests {
+    private static final String PGN = """
+            [Event "Test"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {main line} Nc6 (2... d6 3. d4) 3. Bb5 a6 1-0
+
+            [Event "Test"]
+            [Result "1/2-1/2"]
+
+            1. e4 c5 2. Nf3 d6 3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6 1/2-1/2
+
+            [Event "Test"]
+            [Result "0-1"]
+
+            1. d4 Nf6 2. c4 e6 3. Nc3 Bb4 0-1
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void buildAndProbe() throws Exception {
+        var builder = new OpeningBookBuilder(8);
+        builder.addPgn(new StringReader(PGN));
+        Assertions.assertEquals(3, builder.games());
+
+        var path = tempDir.resolve("test.book");
+        builder.write(path);
+        var book = OpeningBook.open(path);
+
+        var start = Fen.parse(Fen.START);
+        var moves = book.moves(start.positionKey());
+        Assertions.assertEquals(new ChessMove("e2e4"), moves.get(0).move());
+        Assertions.assertEquals(3, moves.get(0).weight());
+        // White lost the d4 game, so the move carries no weight and is left out.
+        Assertions.assertEquals(1, moves.size());
+
+        start.makeMove(new ChessMove("e2e4"));
+        Assertions.assertEquals(1, book.moves(start.positionKey()).size());
+        Assertions.assertEquals(new ChessMove("c7c5"), book.pick(start, new Random(1)));
+
+        Assertions.assertTrue(book.moves(Fen.parse("8/8/8/4k3/8/8/8/4K3 w - - 0 1").positionKey()).isEmpty());
+    }
+
+    @Test
+    public void sanMoves() throws Exception {
+        var game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Assertions.assertEquals(new ChessMove("e1g1"), San.parse(game, "O-O"));
+        Assertions.assertEquals(new ChessMove("e1c1"), San.parse(game, "O-O-O"));
+        Assertions.assertEquals(new ChessMove("d5e6"), San.parse(game, "dxe6"));
+        Assertions.assertEquals(new ChessMove("c3b5"), San.parse(game, "Nb5"));
+        Assertions.assertEquals(new ChessMove("f3f6"), San.parse(game, "Qxf6+"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(game, "Nf9"));
+
+        var promotion = Fen.parse("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+        Assertions.assertEquals(new ChessMove("b7b8n"), San.parse(promotion, "b8=N"));
+    }
+}
@@ -0,0 +1,47 @@
+package chessTests;
+
+import chess.Fen;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class PerftTests {
+
+    @Test
+    public void referenceCounts() {
+        for (var reference : Perft.REFERENCES) {
+            var game = Fen.parse(reference.fen());
+            for (var depth = 1; depth <= 3; depth++) {
+                Assertions.assertEquals(reference.counts()[depth - 1], Perft.perft(game, depth), reference.name() + " depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    public void divideMatchesPerft() {
+        var game = Fen.parse(Perft.REFERENCES.get(1).fen());
+        var divide = Perft.divide(game, 3);
+
+        Assertions.assertEquals(48, divide.size());
+        Assertions.assertEquals(Perft.perft(game, 3), divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void parallelMatchesSingleThreaded() {
+        var game = Fen.parse(Fen.START);
+        Assertions.assertEquals(197281, Perft.parallelPerft(game, 4, ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void fenRoundTrip() {
+        for (var reference : Perft.REFERENCES) {
+            var expected = reference.fen().split(" ");
+            var actual = Fen.format(Fen.parse(reference.fen())).split(" ");
+            for (var i = 0; i < 4; i++) {
+                Assertions.assertEquals(expected[i], actual[i], reference.name());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package chessTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.PositionCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class PositionCacheTests {
+    @Test
+    public void countsHitsAndMisses() {
+        var cache = new PositionCache(1024);
+        var game = new ChessGame();
+        game.getBoard().resetBoard();
+
+        var first = cache.lookup(game.getBoard(), ChessGame.TeamColor.WHITE);
+        var second = cache.lookup(game.getBoard(), ChessGame.TeamColor.WHITE);
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(20, first.size());
+        Assertions.assertEquals(1, cache.hits());
+        Assertions.assertEquals(1, cache.misses());
+        Assertions.assertEquals(0.5, cache.hitRate());
+
+        // The same pieces with the other team to move are another position.
+        Assertions.assertNotSame(first, cache.lookup(game.getBoard(), ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void entryStatus() {
+        var cache = new PositionCache(16);
+        var mate = Fen.parse("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1");
+        Assertions.assertTrue(cache.lookup(mate.getBoard(), ChessGame.TeamColor.BLACK).isCheckmate());
+
+        var stalemate = Fen.parse("k7/8/1Q6/8/8/8/8/7K b - - 0 1");
+        Assertions.assertTrue(cache.lookup(stalemate.getBoard(), ChessGame.TeamColor.BLACK).isStalemate());
+    }
+
+    @Test
+    public void gamesShareCachedPositions() throws Exception {
+        var first = new ChessGame();
+        first.getBoard().resetBoard();
+        first.play(new ChessMove("e2e4"));
+        first.play(new ChessMove("e7e5"));
+
+        var hits = PositionCache.shared().hits();
+        var second = new ChessGame();
+        second.getBoard().resetBoard();
+        second.play(new ChessMove("e2e4"));
+        second.play(new ChessMove("e7e5"));
+        Assertions.assertTrue(PositionCache.shared().hits() > hits);
+
+        Assertions.assertEquals(Set.of(new ChessMove("g1f3"), new ChessMove("g1h3"), new ChessMove("g1e2")),
+                new HashSet<>(second.validMoves(new ChessPosition(1, 7))));
+        Assertions.assertThrows(InvalidMoveException.class, () -> second.play(new ChessMove("e4e5")));
+    }
+}
@@ -0,0 +1,83 @@
+package chessTests;
+
+import chess.ChessMove;
+import chess.Fen;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.TablebaseGenerator;
+import chess.engine.Tablebases;
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+public class TablebaseTests {
+    @TempDir
+    static Path tempDir;
+
+    private static Tablebases tablebases;
+
+    @BeforeAll
+    public static void generate() throws Exception {
+        var generator = new TablebaseGenerator(tempDir);
+        generator.generate("KPK");
+        tablebases = Tablebases.open(tempDir);
+    }
+
+    @Test
+    public void dependenciesGenerated() {
+        Assertions.assertEquals(Set.copyOf(TablebaseGenerator.THREE_PIECES), tablebases.materials());
+    }
+
+    @Test
+    public void mateInOne() throws Exception {
+        var game = Fen.parse("k7/8/1K6/8/8/8/7Q/8 w - - 0 1");
+        Assertions.assertEquals(new Tablebases.Score(Tablebases.Outcome.WIN, 1), tablebases.score(game.getBoard(), game.getTeamTurn()));
+        Assertions.assertEquals(new ChessMove("h2h8"), tablebases.bestMove(game.getBoard(), game.getTeamTurn()));
+
+        // The same position with the colors reversed is read from the same table.
+        var flipped = Fen.parse("8/7q/8/8/8/1k6/8/K7 b - - 0 1");
+        Assertions.assertEquals(1, tablebases.probe(flipped.getBoard(), flipped.getTeamTurn()));
+        Assertions.assertEquals(new ChessMove("h7h1"), tablebases.bestMove(flipped.getBoard(), flipped.getTeamTurn()));
+    }
+
+    @Test
+    public void draws() throws Exception {
+        var rookPawn = Fen.parse("k7/8/8/8/8/8/P7/K7 w - - 0 1");
+        Assertions.assertEquals(0, tablebases.probe(rookPawn.getBoard(), rookPawn.getTeamTurn()));
+
+        var bishop = Fen.parse("k7/8/8/8/8/8/B7/K7 w - - 0 1");
+        Assertions.assertEquals(0, tablebases.probe(bishop.getBoard(), bishop.getTeamTurn()));
+
+        var castling = Fen.parse("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1");
+        Assertions.assertEquals(Tablebases.NOT_FOUND, tablebases.probe(castling.getBoard(), castling.getTeamTurn()));
+    }
+
+    @Test
+    public void searchAnswersFromTables() throws Exception {
+        var game = Fen.parse("8/8/8/3k4/8/8/8/KR6 w - - 0 1");
+        var expected = tablebases.score(game.getBoard(), game.getTeamTurn());
+        Assertions.assertEquals(Tablebases.Outcome.WIN, expected.outcome());
+
+        var result = new Search(new TranspositionTable(1), tablebases).search(game, SearchLimits.depth(8));
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertEquals(Search.MATE - expected.plies(), result.score());
+        Assertions.assertEquals(expected.plies(), result.pv().size());
+        Assertions.assertEquals(0, result.nodes());
+    }
+
+    @Test
+    public void scoreAfterMove() throws Exception {
+        var game = Fen.parse("k7/8/1K6/8/8/8/7Q/8 w - - 0 1");
+        game.play(new ChessMove("h2h3"));
+        Assertions.assertEquals(Tablebases.Outcome.LOSS, tablebases.score(game.getBoard(), game.getTeamTurn()).outcome());
+
+        var rookPawn = Fen.parse("k7/8/8/8/8/8/P7/K7 w - - 0 1");
+        rookPawn.play(new ChessMove("a2a3"));
+        Assertions.assertEquals(new Tablebases.Score(Tablebases.Outcome.DRAW, 0), tablebases.score(rookPawn.getBoard(), rookPawn.getTeamTurn()));
+    }
+}